@@ -0,0 +1,27 @@
+import java.util.Set;
+
+/**
+ * Read-only actor graph for Bacon Game whose actors are also numbered 0 .. numVertices() - 1,
+ * so that BaconGraphLib can run BFS over int ids; edge labels are the Sets of shared movie names.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public interface ActorGraph extends Graph<String, Set<String>> {
+
+    /**
+     * Returns the id of the actor with the given name, or -1 if the actor is not in the graph
+     */
+    public int id(String name);
+
+    /**
+     * Returns the name of the actor with the given id
+     */
+    public String name(int v);
+
+    /**
+     * Returns the movies shared by actors u and v, given what BFS followed to get from u to v
+     * (an edge index or a movie id, depending on the graph)
+     */
+    public Set<String> stepLabel(int u, int v, int via);
+}
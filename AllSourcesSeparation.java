@@ -0,0 +1,145 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Average separation of many centers of the universe at once for Bacon Game;
+ * sources are split across a fork-join pool in batches of 64 for BaconGraphLib.multiSourceBfs,
+ * and every worker thread reuses one set of BFS scratch arrays.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class AllSourcesSeparation {
+    private static final int LEAF_SOURCES = 16; //sources handled by one task before it stops splitting
+    private static final int BATCH_SOURCES = 64; //sources handled by one multiSourceBfs batch
+
+    /**
+     * Called from worker threads as sources finish
+     */
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    private final ActorGraph graph;
+    private final int[] sources;            //actor ids to use as centers
+    private final long[] distanceSums;      //Index: position in sources, Value: sum of separations from that source
+    private final int[] reachedCounts;      //Index: position in sources, Value: actors connected to that source
+    private final AtomicInteger done = new AtomicInteger();
+    private volatile boolean cancelled;
+    private boolean bitParallel = true;     //whether to use BaconGraphLib.multiSourceBfs instead of one bfs per source
+    private ThreadLocal<ShortestPathResult> trees;
+    private ThreadLocal<BaconGraphLib.MultiSourceScratch> masks;
+
+    public AllSourcesSeparation(ActorGraph g, int[] sources) {
+        graph = g;
+        this.sources = sources;
+        distanceSums = new long[sources.length];
+        reachedCounts = new int[sources.length];
+    }
+
+    /**
+     * Chooses between batched bit-parallel BFS (the default) and one BFS per source
+     */
+    public void setBitParallel(boolean bitParallel) {
+        this.bitParallel = bitParallel;
+    }
+
+    /**
+     * Runs BFS from every source on the given pool, reporting to listener (may be null) about once per percent.
+     * Returns false if cancel() was called before every source finished.
+     */
+    public boolean run(ForkJoinPool pool, ProgressListener listener) {
+        trees = ThreadLocal.withInitial(() -> new ShortestPathResult(graph));
+        masks = ThreadLocal.withInitial(() -> new BaconGraphLib.MultiSourceScratch(graph));
+        int leaf = bitParallel ? BATCH_SOURCES : LEAF_SOURCES;
+        int step = Math.max(1, sources.length / 100);
+
+        class SourceTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int lo, hi;
+
+            SourceTask(int lo, int hi) {
+                this.lo = lo;
+                this.hi = hi;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo > leaf) {
+                    int mid = lo + (hi - lo + leaf - 1) / leaf / 2 * leaf; //split on a batch boundary
+                    invokeAll(new SourceTask(lo, mid), new SourceTask(mid, hi));
+                    return;
+                }
+                if (bitParallel) {
+                    if (!cancelled) {
+                        BaconGraphLib.multiSourceBfs(graph, sources, lo, hi, distanceSums, reachedCounts, masks.get());
+                        report(done.addAndGet(hi - lo), hi - lo);
+                    }
+                    return;
+                }
+                ShortestPathResult tree = trees.get();
+                for (int i = lo; i < hi && !cancelled; i++) {
+                    BaconGraphLib.bfs(graph, sources[i], tree);
+                    distanceSums[i] = tree.distanceSum(); //accumulated by BFS itself
+                    reachedCounts[i] = tree.numEdges();
+
+                    report(done.incrementAndGet(), 1);
+                }
+            }
+
+            /**
+             * Tells the listener when the finished count crosses a multiple of step
+             */
+            private void report(int finished, int added) {
+                if (listener != null && (finished / step != (finished - added) / step || finished == sources.length)) {
+                    listener.progress(finished, sources.length);
+                }
+            }
+        }
+
+        pool.invoke(new SourceTask(0, sources.length));
+        trees = null; //let the per-thread scratch go with this run
+        masks = null;
+        return !cancelled;
+    }
+
+    /**
+     * Asks a running computation to stop after the sources it is currently on
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public int numSources() {
+        return sources.length;
+    }
+
+    /**
+     * Actor id of the i-th source
+     */
+    public int source(int i) {
+        return sources[i];
+    }
+
+    /**
+     * Sum of separations from the i-th source to every actor it reaches
+     */
+    public long distanceSum(int i) {
+        return distanceSums[i];
+    }
+
+    /**
+     * Number of actors connected to the i-th source, not counting itself
+     */
+    public int reachedCount(int i) {
+        return reachedCounts[i];
+    }
+
+    /**
+     * Average separation from the i-th source, as BaconGraphLib.averageSeparation computes it
+     */
+    public double averageSeparation(int i) {
+        return (double) distanceSums[i] / reachedCounts[i];
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Approximate average separation of every actor in one connected part of the universe for Bacon Game,
+ * estimated Eppstein-Wang style from BFS out of randomly sampled pivot actors instead of BFS out of every actor.
+ * Each estimate comes with an approximate 95% confidence interval, and the candidates for the top (or bottom)
+ * k can be confirmed with exact BFS, all within a runtime budget. Pivots are never repeated, so once every actor
+ * has been one the estimates are exact.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class ApproximateCloseness {
+    private static final double Z = 1.96;   //normal quantile of a two-sided 95% confidence interval
+    private static final int MIN_PIVOTS = 2; //sampled even when the budget is spent, so every interval has a width
+
+    private final ActorGraph graph;
+    private final ShortestPathResult component; //tree whose actors are ranked (normally baconGraph)
+    private final ShortestPathResult tree;      //scratch reused by every pivot BFS
+    private final Random random;
+    private final int[] order;      //actors of the component; the first pivots entries are the pivots sampled so far
+    private final long[] sums;      //Index: actor id, Value: sum of separations from the sampled pivots
+    private final long[] squares;   //Index: actor id, Value: sum of squared separations from the sampled pivots
+    private int pivots;             //number of pivots sampled so far
+
+    public ApproximateCloseness(ActorGraph g, ShortestPathResult component, long seed) {
+        graph = g;
+        this.component = component;
+        tree = new ShortestPathResult(g);
+        random = new Random(seed);
+        order = new int[component.numVertices()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = component.vertex(i);
+        }
+        sums = new long[g.numVertices()];
+        squares = new long[g.numVertices()];
+    }
+
+    /**
+     * Runs BFS from random pivots until budgetMillis have passed, maxPivots pivots have been sampled in all or
+     * every actor in the component has been a pivot; pivots add up over calls, so the estimates only get tighter.
+     * Returns the number of pivots sampled so far.
+     */
+    public int sample(long budgetMillis, int maxPivots) {
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000;
+        int n = component.numVertices();
+        int max = Math.min(maxPivots, n);
+        while (pivots < max && (pivots < MIN_PIVOTS || System.nanoTime() < deadline)) {
+            //pivots are drawn uniformly from the component, without replacement: one step of a Fisher-Yates shuffle
+            int j = pivots + random.nextInt(n - pivots);
+            int pivot = order[j];
+            order[j] = order[pivots];
+            order[pivots] = pivot;
+            BaconGraphLib.bfs(graph, pivot, tree);
+            for (int i = 0; i < tree.numVertices(); i++) {
+                int v = tree.vertex(i);
+                int d = tree.distance(v);
+                sums[v] += d;
+                squares[v] += (long) d * d;
+            }
+            pivots++;
+        }
+        return pivots;
+    }
+
+    public int numPivots() {
+        return pivots;
+    }
+
+    /**
+     * Whether every actor in the component has been a pivot, so estimate() is the exact average separation
+     */
+    public boolean isExact() {
+        return pivots == component.numVertices();
+    }
+
+    /**
+     * Estimated average separation of actor v to the other actors in the component; the pivots are an unbiased
+     * sample of all n actors, v included, so their mean separation is scaled by n / (n - 1)
+     */
+    public double estimate(int v) {
+        int n = component.numVertices();
+        if (isExact()) {
+            return (double) sums[v] / (n - 1); //as AllSourcesSeparation computes it
+        }
+        return (double) sums[v] / pivots * n / (n - 1);
+    }
+
+    /**
+     * Half width of the approximate 95% confidence interval around estimate(v), from the sample variance;
+     * pivots are drawn without replacement, so it narrows by the finite population correction and is 0 once exact
+     */
+    public double halfWidth(int v) {
+        if (pivots < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int n = component.numVertices();
+        if (isExact()) {
+            return 0;
+        }
+        double mean = (double) sums[v] / pivots;
+        double variance = Math.max(0, (squares[v] - mean * sums[v]) / (pivots - 1));
+        double correction = (double) (n - pivots) / (n - 1);
+        return Z * Math.sqrt(variance / pivots * correction) * n / (n - 1);
+    }
+
+    public double lowerBound(int v) {
+        return estimate(v) - halfWidth(v);
+    }
+
+    public double upperBound(int v) {
+        return estimate(v) + halfWidth(v);
+    }
+
+    /**
+     * The k best (k positive) or k worst (k negative, worst first) centers with their average separation:
+     * samples pivots for up to half of budgetMillis, then, if confirm is set, runs exact BFS from every actor
+     * whose interval overlaps the k-th best (or worst) one in the time that is left. Entries are
+     * "name: avg (exact)" when confirmed or when every actor was a pivot, and "name: avg +/- halfWidth" when only estimated.
+     */
+    public List<String> list(int k, long budgetMillis, boolean confirm) {
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000;
+        int n = component.numVertices();
+        int count = Math.min(Math.abs(k), n);
+        List<String> toReturn = new ArrayList<>();
+        if (count == 0 || n < 2) {
+            return toReturn;
+        }
+        sample(budgetMillis / 2, Integer.MAX_VALUE);
+
+        //ranked by estimate, best first, or worst first when k is negative
+        Integer[] ranked = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ranked[i] = component.vertex(i);
+        }
+        Comparator<Integer> byEstimate = Comparator.comparingDouble(this::estimate);
+        Arrays.sort(ranked, k > 0 ? byEstimate : byEstimate.reversed());
+
+        if (isExact()) {
+            for (int i = 0; i < count; i++) {
+                toReturn.add(graph.name(ranked[i]) + ": " + estimate(ranked[i]) + " (exact)");
+            }
+            return toReturn;
+        }
+
+        long remaining = (deadline - System.nanoTime()) / 1_000_000;
+        if (confirm && remaining > 0) {
+            int[] candidates = candidates(ranked, count, k > 0);
+            AllSourcesSeparation exact = new AllSourcesSeparation(graph, candidates);
+            Timer timer = new Timer(true);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    exact.cancel();
+                }
+            }, remaining);
+            boolean completed = exact.run(ForkJoinPool.commonPool(), null);
+            timer.cancel();
+
+            if (completed) {
+                //every actor outside the candidates is (with 95% confidence each) beaten by count candidates
+                Integer[] order = new Integer[candidates.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Comparator<Integer> byExact = Comparator.comparingDouble(exact::averageSeparation);
+                Arrays.sort(order, k > 0 ? byExact : byExact.reversed());
+                for (int i = 0; i < count; i++) {
+                    toReturn.add(graph.name(exact.source(order[i])) + ": " + exact.averageSeparation(order[i]) + " (exact)");
+                }
+                return toReturn;
+            }
+            System.err.println("budget ran out while confirming " + candidates.length + " candidates, listing estimates");
+        }
+
+        for (int i = 0; i < count; i++) {
+            int v = ranked[i];
+            toReturn.add(graph.name(v) + String.format(": %.4f +/- %.4f", estimate(v), halfWidth(v)));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Actors that may belong in the best (or worst) count: every actor whose interval reaches past the
+     * count-th best upper bound (or worst lower bound); ranked must already be sorted by estimate
+     */
+    private int[] candidates(Integer[] ranked, int count, boolean best) {
+        double[] bounds = new double[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            bounds[i] = best ? upperBound(ranked[i]) : -lowerBound(ranked[i]);
+        }
+        Arrays.sort(bounds);
+        double cutoff = bounds[count - 1];
+
+        int[] candidates = new int[ranked.length];
+        int size = 0;
+        for (int v : ranked) {
+            if ((best ? lowerBound(v) : -upperBound(v)) <= cutoff) {
+                candidates[size++] = v;
+            }
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+}
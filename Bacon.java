@@ -1,8 +1,10 @@
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Command-Line Game Interface for Bacon Game;
@@ -12,12 +14,39 @@ import java.util.*;
 
 public class Bacon {
     public static String center = "Kevin Bacon";    //center of universe starts off as Kevin Bacon
-    public static Graph<String, Set<String>> mainGraph; //graph with all actors and edges
-    public static Graph<String, Set<String>> shortestPathTree; //current shortest path tree
-    public static Graph<String, Set<String>> baconGraph; //shortest path tree when Kevin Bacon is center of the universe
+    public static ActorGraph mainGraph; //graph with all actors and edges
+    public static ShortestPathResult shortestPathTree; //current shortest path tree
+    public static ShortestPathResult baconGraph; //shortest path tree when Kevin Bacon (or actor 0, if he is missing) is center of the universe
+    public static PathTreeCache trees; //recently used shortest path trees, by center
+    public static ShortestPathResult fromTree, toTree; //scratch for point-to-point paths
+    public static ClosenessIndex closeness; //actors in the Bacon universe ranked by average separation
+    private static ConnectedComponents components; //connected components of mainGraph, found again after movie updates
+    public static ApproximateCloseness approximate; //sampled estimate of closeness, kept so later queries add pivots
+    public static String indexFile = "inputs/bacon/closeness.idx"; //where closeness is kept between runs
+    public static long inputChecksum; //checksum of the input files mainGraph was built from
+    private static boolean graphModified; //whether movies were added or removed since mainGraph was loaded
 
     public static void main(String[] args) {
-        mainGraph = new AdjacencyMapGraph<>();
+        //--snapshot [file]: load the graph from a binary snapshot, writing one first if it is missing or out of date
+        //--movies: keep a bipartite actor-movie graph instead of expanding every cast into co-star edges
+        //--warm <n>: compute the trees of the n best-connected actors in the background
+        //--mapped [file]: keep the co-star graph in a memory-mapped file off the heap, building it first if it is missing or out of date
+        GraphOptions options = new GraphOptions();
+        int warm = 0;
+        for (int i = 0; i < args.length; i++) {
+            int last = options.parse(args, i);
+            if (last >= 0) {
+                i = last;
+            }
+            else if (args[i].equals("--warm") && i + 1 < args.length) {
+                try {
+                    warm = Integer.parseInt(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.err.println("--warm needs a number, ignoring it");
+                }
+            }
+        }
 
         //txt files:
         String actorFile = "inputs/bacon/actors.txt";
@@ -31,11 +60,10 @@ public class Bacon {
         String movieactorFile = "inputs/bacon/movie-actorsTest.txt"; */
 
 
-        Map<String, String> idActors = readActors(actorFile);   //Key: actor id, Value: actor names
-        Map<String, String> idMovies = readMovies(movieFile);   //Key: movie id, Value: movie names
-        Map<String, Set<String>> moviesActors = readMoviesActors(idActors, idMovies, movieactorFile); //Key: movie name, Value: set of actors
-
-        buildGraph(moviesActors); //adds edges to graph
+        LoadedGraph loaded = options.load(actorFile, movieFile, movieactorFile);
+        mainGraph = loaded.graph();
+        inputChecksum = loaded.checksum();
+        components(); //once up front, so reachability never needs a traversal
 
         /*
         System.out.println("\nMain Graph:");
@@ -45,16 +73,38 @@ public class Bacon {
 
         //Instructions for Command Interface:
         System.out.println("Commands:");
+        System.out.println("a <#> <ms>: estimate top (positive number) or bottom (negative) <#> centers of the universe within <ms> milliseconds, confirming them exactly if time allows");
+        System.out.println("b <name>|<name>: find path between two actors, without changing the center of the universe");
         System.out.println("c <#>: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation");
         System.out.println("d <low> <high>: list actors sorted by degree, with degree between low and high");
         System.out.println("i: list actors with infinite separation from the current center");
+        System.out.println("m <movie>|<name>|<name>...: add a movie with its cast, adding actors who are new");
         System.out.println("p <name>: find path from <name> to current center of the universe");
+        System.out.println("r <movie>: remove a movie");
         System.out.println("s <low> <high>: list actors sorted by non-infinite separation from the current center, with separation between low and high");
+        System.out.println("stats: show load and build times, BFS counts, command latencies and cache hit rate");
         System.out.println("u <name>: make <name> the center of the universe");
         System.out.println("q: quit game\n");
 
+        trees = new PathTreeCache(mainGraph, 16, 256L << 20); //up to 16 trees or 256 MB
+        if (!mainGraph.hasVertex(center) && mainGraph.numVertices() > 0) {
+            //start from actor 0 instead, as BaconUniverse does
+            System.out.println(center + " is not in the graph, starting from " + mainGraph.name(0));
+            center = mainGraph.name(0);
+        }
         setCenter(center); //set center
         baconGraph = shortestPathTree;
+        if (baconGraph != null) {
+            trees.pin(baconGraph);
+        }
+        BaconMetrics.watch(trees);
+        BaconMetrics.register();
+        if (warm > 0) {
+            trees.warmUp(warm);
+        }
+
+        //reuse the ranking from an earlier run if the input files have not changed
+        closeness = ClosenessIndex.load(mainGraph, indexFile, inputChecksum);
 
         Scanner in = new Scanner(System.in);
         String line;
@@ -64,9 +114,35 @@ public class Bacon {
 
         //keep playing until input is q:
         while(!line.equals("q")) {
+            long start = BaconMetrics.start();
             String[] param = line.split(" ", 2);
 
-            if(param[0].equals("c")) {
+            if(param[0].equals("a")) {
+                String[] values = param.length == 1 ? new String[0] : param[1].split(" ");
+                if (values.length != 2) {
+                    System.out.println("invalid entry, try again"); //didn't input a number and a budget
+                }
+                else {
+                    try {
+                        int num = Integer.parseInt(values[0]);
+                        long budget = Long.parseLong(values[1]);
+                        System.out.println(approxSeperationList(num, budget));
+                    }
+                    catch (NumberFormatException e) {
+                        System.out.println("invalid entry, try again"); //didn't input a number
+                    }
+                }
+            }
+            else if(param[0].equals("b")) {
+                String[] names = param.length == 1 ? new String[0] : param[1].split("\\|");
+                if (names.length != 2) {
+                    System.out.println("invalid entry, try again"); //didn't input two names
+                }
+                else {
+                    findPathBetween(names[0].trim(), names[1].trim());
+                }
+            }
+            else if(param[0].equals("c")) {
                 if (param.length == 1) {
                     System.out.println("invalid entry, try again"); //didn't input a number
                 }
@@ -104,6 +180,19 @@ public class Bacon {
             else if(param[0].equals("i")) {
                 findInfinite();
             }
+            else if(param[0].equals("m")) {
+                String[] names = param.length == 1 ? new String[0] : param[1].split("\\|");
+                if (names.length < 2) {
+                    System.out.println("invalid entry, try again"); //didn't input a movie and its cast
+                }
+                else {
+                    List<String> cast = new ArrayList<>();
+                    for (int i = 1; i < names.length; i++) {
+                        cast.add(names[i].trim());
+                    }
+                    addMovie(names[0].trim(), cast);
+                }
+            }
             else if(param[0].equals("p")) {
                 if(param.length == 1) {
                     System.out.println("invalid entry, try again"); //didn't input a name
@@ -117,6 +206,14 @@ public class Bacon {
                     }
                 }
             }
+            else if(param[0].equals("r")) {
+                if(param.length == 1) {
+                    System.out.println("invalid entry, try again"); //didn't input a movie
+                }
+                else {
+                    removeMovie(param[1].trim());
+                }
+            }
             else if(param[0].equals("s")) {
                 if (param.length == 1) {
                     System.out.println("invalid entry, try again"); //didn't input a value for low
@@ -138,6 +235,11 @@ public class Bacon {
                     }
                 }
             }
+            else if(param[0].equals("stats")) {
+                for (String stat : BaconMetrics.report()) {
+                    System.out.println(stat);
+                }
+            }
             else if(param[0].equals("u")) {
                 if(param.length == 1) {
                     System.out.println("invalid entry, try again"); //didn't input a name
@@ -149,6 +251,7 @@ public class Bacon {
             else {
                 System.out.println("invalid entry, try again");
             }
+            BaconMetrics.command(line, start);
 
             System.out.println("\n" + center + " game > ");
             line = in.nextLine();
@@ -156,9 +259,166 @@ public class Bacon {
 
     }
 
+    /**
+     * A loaded graph and the checksum of the input files it was built from
+     */
+    public static class LoadedGraph {
+        private final ActorGraph graph;
+        private final long checksum;
+
+        public LoadedGraph(ActorGraph graph, long checksum) {
+            this.graph = graph;
+            this.checksum = checksum;
+        }
+
+        public ActorGraph graph() {
+            return graph;
+        }
+
+        public long checksum() {
+            return checksum;
+        }
+    }
+
+    /**
+     * The --snapshot [file], --movies and --mapped [file] options that choose how the graph is loaded,
+     * parsed once here for Bacon, BaconBatch and BaconServer
+     */
+    public static class GraphOptions {
+        private String snapshotFile, mappedFile;
+        private boolean movies;
+
+        /**
+         * Reads the option at args[i] if it is one of these; returns the index of the last argument it used,
+         * or -1 if args[i] is some other argument
+         */
+        public int parse(String[] args, int i) {
+            if (args[i].equals("--snapshot")) {
+                boolean named = i + 1 < args.length && !args[i + 1].startsWith("--");
+                snapshotFile = named ? args[++i] : "inputs/bacon/graph.snapshot";
+            }
+            else if (args[i].equals("--movies")) {
+                movies = true;
+            }
+            else if (args[i].equals("--mapped")) {
+                boolean named = i + 1 < args.length && !args[i + 1].startsWith("--");
+                mappedFile = named ? args[++i] : "inputs/bacon/graph.mapped";
+            }
+            else {
+                return -1;
+            }
+            if (movies && snapshotFile != null) { //whichever came first
+                System.err.println("--snapshot only applies to the co-star graph, ignoring it");
+                snapshotFile = null;
+            }
+            return i;
+        }
+
+        /**
+         * Loads the graph from the given txt files as these options say, see loadGraph
+         */
+        public LoadedGraph load(String actorFile, String movieFile, String movieactorFile) {
+            return loadGraph(snapshotFile, mappedFile, movies, actorFile, movieFile, movieactorFile);
+        }
+    }
+
+    /**
+     * Loads the graph from the snapshot file if it is given and newer than the txt files, otherwise reads
+     * the txt files (and writes the snapshot if one was given); movies selects a MovieGraph over a CompactGraph.
+     * A mapped file, if given, takes the place of both: the graph is a MappedGraph over it.
+     * Leaves Bacon's fields alone, so several loads can run at once.
+     */
+    public static LoadedGraph loadGraph(String snapshotFile, String mappedFile, boolean movies, String actorFile, String movieFile, String movieactorFile) {
+        if (mappedFile != null) {
+            try {
+                long start = BaconMetrics.start();
+                MappedGraph graph = isUpToDate(mappedFile, actorFile, movieFile, movieactorFile) ? MappedGraph.open(mappedFile) : null;
+                if (graph != null) {
+                    BaconMetrics.loaded(mappedFile, start);
+                    BaconMetrics.graphChanged(graph);
+                }
+                else {
+                    //built by external sorts, so the txt files are never held in memory whole
+                    MappedGraph.build(actorFile, movieFile, movieactorFile,
+                            ClosenessIndex.checksum(actorFile, movieFile, movieactorFile), mappedFile);
+                    graph = MappedGraph.open(mappedFile);
+                    BaconMetrics.built(graph, start);
+                }
+                //actor ids differ from CompactGraph's, so keep the closeness index of one from being read for the other
+                return new LoadedGraph(graph, ~graph.checksum());
+            }
+            catch (IOException e) {
+                System.err.println("Cannot build or map graph file, reading txt files.\n" + e.getMessage());
+            }
+        }
+
+        if (snapshotFile != null && isUpToDate(snapshotFile, actorFile, movieFile, movieactorFile)) {
+            try {
+                long start = BaconMetrics.start();
+                GraphSnapshot snapshot = GraphSnapshot.read(snapshotFile);
+                if (snapshot != null) {
+                    BaconMetrics.loaded(snapshotFile, start);
+                    BaconMetrics.graphChanged(snapshot.graph());
+                    return new LoadedGraph(snapshot.graph(), snapshot.checksum());
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Cannot read snapshot, reading txt files.\n" + e.getMessage());
+            }
+        }
+
+        PipeFileLoader loader = new PipeFileLoader(ForkJoinPool.commonPool());
+        long start = BaconMetrics.start();
+        Map<String, String> idActors = loader.readNames(actorFile);   //Key: actor id, Value: actor names
+        BaconMetrics.loaded(actorFile, start);
+        start = BaconMetrics.start();
+        Map<String, String> idMovies = loader.readNames(movieFile);   //Key: movie id, Value: movie names
+        BaconMetrics.loaded(movieFile, start);
+        start = BaconMetrics.start();
+        Map<String, Set<String>> moviesActors = loader.readMoviesActors(idActors, idMovies, movieactorFile); //Key: movie name, Value: set of actors
+        BaconMetrics.loaded(movieactorFile, start);
+
+        //freeze actors and casts into a compact, read-only graph instead of calling buildGraph
+        start = BaconMetrics.start();
+        ActorGraph graph;
+        if (movies) {
+            graph = new MovieGraph(idActors.values(), moviesActors);
+        }
+        else {
+            graph = new CompactGraph(idActors.values(), moviesActors);
+        }
+        BaconMetrics.built(graph, start);
+        long checksum = ClosenessIndex.checksum(actorFile, movieFile, movieactorFile);
+
+        if (snapshotFile != null) {
+            try {
+                GraphSnapshot.write((CompactGraph) graph, checksum, snapshotFile);
+            }
+            catch (IOException e) {
+                System.err.println("Cannot write snapshot.\n" + e.getMessage());
+            }
+        }
+        return new LoadedGraph(graph, checksum);
+    }
+
+    /**
+     * Whether file exists and no other (existing) file was modified after it
+     */
+    private static boolean isUpToDate(String file, String... sources) {
+        File f = new File(file);
+        if (!f.exists()) {
+            return false;
+        }
+        for (String source : sources) {
+            if (new File(source).lastModified() > f.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Takes filename as parameter and returns a Map with Key: Actor ID and Value: Actor Name
-     * Adds actors as vertices to the main graph
      */
     public static Map<String, String> readActors(String s) {
         Map<String, String> map = new HashMap<>();
@@ -177,7 +437,6 @@ public class Bacon {
             while ((line = input.readLine()) != null) {
                 String[] lineArray = line.split("\\|");
                 map.put(lineArray[0], lineArray[1]); //index 0 contains the ID, index 1 contains the name
-                mainGraph.insertVertex(lineArray[1]); //adds actors as vertices in the main graph
             }
 
         }
@@ -272,19 +531,19 @@ public class Bacon {
 
     /**
      * Given Map of Movie Names (key) and Set of Actors in that movie (Value), adds edges
-     * between actors in the main graph
+     * between actors in the given mutable graph (the actors must already be vertices)
      */
-    public static void buildGraph (Map<String, Set<String>> m){
+    public static void buildGraph (Graph<String, Set<String>> graph, Map<String, Set<String>> m){
         for(String movie : m.keySet()) {
             Object[] actors = m.get(movie).toArray();   //actors in the set put into array
             int currIndex = 0;  //pointer to keep track of current index
             while (currIndex < actors.length) {
                 for (int i = currIndex + 1; i < actors.length; i++) {
-                    if (!mainGraph.hasEdge(actors[currIndex].toString(), actors[i].toString())) {
-                        mainGraph.insertUndirected(actors[currIndex].toString(), actors[i].toString(), new HashSet<String>());
+                    if (!graph.hasEdge(actors[currIndex].toString(), actors[i].toString())) {
+                        graph.insertUndirected(actors[currIndex].toString(), actors[i].toString(), new HashSet<String>());
                     }
                     //add movie name to the label in the main graph between the two actors:
-                    mainGraph.getLabel(actors[currIndex].toString(), actors[i].toString()).add(movie);
+                    graph.getLabel(actors[currIndex].toString(), actors[i].toString()).add(movie);
                 }
                 currIndex++;
             }
@@ -292,61 +551,122 @@ public class Bacon {
     }
 
     /**
-     * Returns a List of the top (if num is pos) or bottom (if num is neg)
-     * centers of the universe, sorted by avg separation
+     * Adds a movie with its cast to mainGraph, then repairs the current tree and baconGraph instead of running BFS again
      */
-    public static List<String> avgSeperationList(int num) {
-        List<String> toReturn = new ArrayList<>();
+    public static void addMovie(String title, Collection<String> cast) {
+        if(!(mainGraph instanceof CompactGraph)) {
+            System.out.println("movies can only be added to the co-star graph, run without --movies or --mapped");
+            return;
+        }
+        CompactGraph graph = (CompactGraph) mainGraph;
+        trees.stopWarmUp(); //its BFS reads the arrays addMovie replaces
+        int[] ids = graph.addMovie(title, cast);
+        if(ids == null) {
+            System.out.println(title + " is already in the graph");
+            return;
+        }
 
-        if(num == 0) {
-            return toReturn;
+        int changed = BaconGraphLib.repairAfterAdd(graph, shortestPathTree, ids);
+        if(baconGraph != null && baconGraph != shortestPathTree) {
+            BaconGraphLib.repairAfterAdd(graph, baconGraph, ids);
         }
+        graphChanged();
+        System.out.println("added " + title + " with " + ids.length + " actors, " + changed + " separations from " + center + " changed");
+    }
 
-        //Key: actor name, Value: avg separation when they are the center
-        Map<String, Double> avgSepGraph = new HashMap<>();
+    /**
+     * Removes a movie from mainGraph, then repairs the current tree and baconGraph instead of running BFS again
+     */
+    public static void removeMovie(String title) {
+        if(!(mainGraph instanceof CompactGraph)) {
+            System.out.println("movies can only be removed from the co-star graph, run without --movies or --mapped");
+            return;
+        }
+        CompactGraph graph = (CompactGraph) mainGraph;
+        trees.stopWarmUp(); //its BFS reads the arrays removeMovie changes
+        int[] ids = graph.removeMovie(title);
+        if(ids == null) {
+            System.out.println(title + " is not in the graph");
+            return;
+        }
 
-        for(String actor : mainGraph.vertices()) {
-            if(baconGraph.hasVertex(actor)) { //only add actors who are in the Bacon universe
-                toReturn.add(actor);
+        int changed = BaconGraphLib.repairAfterRemove(graph, shortestPathTree, ids);
+        if(baconGraph != null && baconGraph != shortestPathTree) {
+            BaconGraphLib.repairAfterRemove(graph, baconGraph, ids);
+        }
+        graphChanged();
+        System.out.println("removed " + title + ", " + changed + " separations from " + center + " changed");
+    }
 
-                //calculate avg separation for the actor and add the avg sep to map
-                avgSepGraph.put(actor, BaconGraphLib.averageSeparation(BaconGraphLib.bfs(mainGraph, actor), actor));
-            }
+    /**
+     * Connected components of mainGraph, found when first asked for after loading or a movie update
+     */
+    public static ConnectedComponents components() {
+        if (components == null) {
+            components = new ConnectedComponents(mainGraph);
         }
+        return components;
+    }
 
-        //custom Comparator to compare avg sep between two actors
-        class AvgSepComparator implements Comparator<String> {
-            @Override
-            public int compare(String o1, String o2) {
-                //use graph to retrieve an actor's avg separation
-                double d = avgSepGraph.get(o1) - avgSepGraph.get(o2);
+    /**
+     * Forgets everything computed from the graph before a movie was added or removed, except the repaired trees
+     */
+    private static void graphChanged() {
+        trees.invalidate(shortestPathTree);
+        closeness = null;
+        approximate = null;
+        components = null; //a removed movie can split a component, so they are found again when next needed
+        graphModified = true; //the index file still matches the input files, so it is no longer read or written
+        BaconMetrics.graphChanged(mainGraph);
+    }
 
-                if(d < 0) {
-                    return -1;
-                }
-                else if (d > 0) {
-                    return 1;
-                }
-                else {
-                    return 0;
-                }
-            }
+    /**
+     * Returns a List of the top (if num is pos) or bottom (if num is neg)
+     * centers of the universe, sorted by avg separation
+     */
+    public static List<String> avgSeperationList(int num) {
+        List<String> toReturn = new ArrayList<>();
+
+        if(num == 0 || baconGraph == null) {
+            return toReturn;
         }
 
-        Comparator<String> ascompare = new AvgSepComparator();
+        //ranking is read from the closeness index, which is built the first time it is needed
+        if(closeness == null) {
+            ConnectedComponents cc = components();
+            int[] sources = cc.members(cc.component(baconGraph.root())); //only actors connected to Kevin Bacon
+            closeness = graphModified ? ClosenessIndex.rank(mainGraph, sources)
+                    : ClosenessIndex.open(mainGraph, sources, indexFile, inputChecksum);
+        }
 
-        if (num > 0 && num <= baconGraph.numVertices()) {
-            toReturn.sort(ascompare); //sort using custom comparator
-            return toReturn.subList(0, num); //return list with num entries
-        } else if (num < 0 && num * -1 <= baconGraph.numVertices()) {
-            toReturn.sort(ascompare.reversed()); //reverse comparator if num is neg
-            return toReturn.subList(0, -1 * num); //return list with num entries
+        if (Math.abs(num) <= closeness.size()) {
+            return closeness.list(num); //top num entries if num is pos, bottom entries if neg
         }
         else {
-            //num is zero or we can't have num entries in final list bc num is too large
+            //we can't have num entries in final list bc num is too large
+            System.out.println("Invalid #");
+            return toReturn;
+        }
+    }
+
+    /**
+     * Returns a List of the estimated top (if num is pos) or bottom (if num is neg) centers of the universe,
+     * sorted by avg separation, using about budget milliseconds; entries say whether their value is exact
+     */
+    public static List<String> approxSeperationList(int num, long budget) {
+        if(baconGraph == null || Math.abs(num) > baconGraph.numVertices()) {
+            //we can't have num entries in final list bc num is too large
             System.out.println("Invalid #");
             return new ArrayList<>();
         }
+
+        //estimates from pivots sampled by earlier queries are kept, so each query refines them
+        if(approximate == null) {
+            approximate = new ApproximateCloseness(mainGraph, baconGraph, 10);
+        }
+        List<String> toReturn = approximate.list(num, budget, true);
+        System.out.println("estimated from " + approximate.numPivots() + " pivots");
+        return toReturn;
     }
 
     /**
@@ -354,14 +674,22 @@ public class Bacon {
      * between low and high
      */
     public static List<String> degreeList(int low, int high) {
+        return degreeList(shortestPathTree, low, high);
+    }
+
+    /**
+     * Returns a List of the actors in tree sorted by degree, with a range of degrees between low and high
+     */
+    public static List<String> degreeList(ShortestPathResult tree, int low, int high) {
+        ActorGraph graph = tree.graph();
         List<String> toReturn = new ArrayList<>();
-        for(String vertex : shortestPathTree.vertices()) {
-            int degree = mainGraph.inDegree(vertex);
+        for(String vertex : tree.vertices()) {
+            int degree = graph.inDegree(vertex);
             if(degree >= low && degree <= high) {   //only adds to list if degree is between low-high
                 toReturn.add(vertex);
             }
         }
-        toReturn.sort((String s1, String s2) -> mainGraph.inDegree(s2) - mainGraph.inDegree(s1));
+        toReturn.sort((String s1, String s2) -> graph.inDegree(s2) - graph.inDegree(s1));
         return toReturn;
     }
 
@@ -369,30 +697,92 @@ public class Bacon {
      * Finds actors with infinite separation from the current center
      */
     public static void findInfinite() {
-        //finds differences between mainGraph and shortestPathTree
-        System.out.println(BaconGraphLib.missingVertices(mainGraph, shortestPathTree));
+        //actors outside the center's connected component
+        System.out.println(components().unreachable(mainGraph.id(center)));
     }
 
     /**
      * Finds a path from actor with name s to current center of universe
      */
     public static void findPath(String s) {
-        //finds shortest path from s to center
-        List<String> list = BaconGraphLib.getPath(shortestPathTree, s);
+        for(String line : describePath(shortestPathTree, s)) {
+            System.out.println(line);
+        }
+    }
 
-        if(!list.isEmpty()) {
-            System.out.println(s + "'s number is " + (list.size() - 1));
+    /**
+     * Returns the lines findPath prints for a path from actor with name s to the root of tree
+     */
+    public static List<String> describePath(ShortestPathResult tree, String s) {
+        List<String> lines = new ArrayList<>();
+        ActorGraph graph = tree.graph();
+        if(tree.root() < 0 || s.equals(graph.name(tree.root()))) {
+            lines.add("Error");
+            return lines;
+        }
+        if(!tree.hasVertex(s)) {
+            lines.add("No path available");
+            return lines;
         }
 
-        //uses list to print the path
+        //finds shortest path from s to center
+        List<String> list = BaconGraphLib.getPath(tree, s);
+        lines.add(s + "'s number is " + (list.size() - 1));
+
+        //uses list to describe the path
         int count = 0;
         for(String actor: list) {
             if(count != 0) {
-                System.out.println(s + " appeared in " + shortestPathTree.getLabel(s, actor) + " with " + actor);
+                lines.add(s + " appeared in " + graph.getLabel(s, actor) + " with " + actor);
             }
             s = actor;
             count++;
         }
+        return lines;
+    }
+
+    /**
+     * Finds a path from actor with name a to actor with name b using bidirectional BFS
+     */
+    public static void findPathBetween(String a, String b) {
+        if(fromTree == null) {
+            fromTree = new ShortestPathResult(mainGraph);
+            toTree = new ShortestPathResult(mainGraph);
+        }
+        for(String line : describePathBetween(mainGraph, components(), a, b, fromTree, toTree)) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Returns the lines findPathBetween prints for a path from actor a to actor b in graph,
+     * using fromTree and toTree as scratch; components of graph rule out unconnected actors without a search
+     */
+    public static List<String> describePathBetween(ActorGraph graph, ConnectedComponents components, String a, String b,
+                                                   ShortestPathResult fromTree, ShortestPathResult toTree) {
+        List<String> lines = new ArrayList<>();
+        if(!graph.hasVertex(a) || !graph.hasVertex(b)) {
+            lines.add("Vertex not in graph");
+            return lines;
+        }
+        if(!components.connected(graph.id(a), graph.id(b))) {
+            lines.add("No path available"); //without searching all of a's component first
+            return lines;
+        }
+
+        int[] path = BaconGraphLib.shortestPath(graph, graph.id(a), graph.id(b), fromTree, toTree);
+        if(path.length == 0) {
+            lines.add("No path available");
+            return lines;
+        }
+
+        //uses path to describe each step, as describePath does
+        lines.add(a + "'s separation from " + b + " is " + (path.length - 1));
+        for(int i = 1; i < path.length; i++) {
+            String s = graph.name(path[i - 1]), actor = graph.name(path[i]);
+            lines.add(s + " appeared in " + graph.getLabel(s, actor) + " with " + actor);
+        }
+        return lines;
     }
 
     /**
@@ -400,24 +790,24 @@ public class Bacon {
      * of separation between low and high; sorts only actors with non-infinite separation
      */
     public static List<String> separationList(int low, int high) {
+        return separationList(shortestPathTree, low, high);
+    }
+
+    /**
+     * Returns a List of actors sorted by separation from the root of tree, with a range of separation between low and high
+     */
+    public static List<String> separationList(ShortestPathResult tree, int low, int high) {
         List<String> toReturn = new ArrayList<>();
-        //Key: actor name, Value: separation from center
-        Map<String, Integer> stepsMap = new HashMap<>();
-
-        for(String vertex : shortestPathTree.vertices()) {
-            if(!vertex.equals(center)) {
-                //calculate separation from current center
-                int steps = BaconGraphLib.getPath(shortestPathTree, vertex).size() - 1;
-                //only add if between low-high
-                if (steps >= low && steps <= high) {
-                    toReturn.add(vertex);
-                    stepsMap.put(vertex, steps);
-                }
-            }
+        if(high < low || high < 1) {
+            return toReturn;
         }
 
-        //sort by comparing an actor's separation from center which is now stored in the map
-        toReturn.sort((String s1, String s2) -> stepsMap.get(s1) - stepsMap.get(s2));
+        //BFS groups actors by separation, so the range is one run of the tree's order, already sorted
+        //(the center itself, at separation 0, is never listed)
+        int end = tree.levelStart(Math.min(high, tree.maxDistance()) + 1);
+        for(int i = tree.levelStart(Math.max(low, 1)); i < end; i++) {
+            toReturn.add(tree.graph().name(tree.vertex(i)));
+        }
         return toReturn;
     }
 
@@ -429,12 +819,14 @@ public class Bacon {
             System.out.println("Vertex not in graph");
         }
         else {
-            //update shortest path tree for the new center of the universe
-            shortestPathTree = BaconGraphLib.bfs(mainGraph, s);
+            //update shortest path tree for the new center of the universe, reusing a cached tree if there is one
+            shortestPathTree = trees.get(mainGraph.id(s));
             //update new center
             center = s;
-            System.out.println(s + " is now the center of the acting universe, connected to " + (shortestPathTree.numEdges())
-                    + "/" + mainGraph.numVertices() + " actors with average separation " + BaconGraphLib.averageSeparation(shortestPathTree, s));
+            SeparationStats stats = shortestPathTree.stats(); //gathered while BFS ran
+            ConnectedComponents cc = components();
+            System.out.println(s + " is now the center of the acting universe, connected to " + (cc.size(cc.component(mainGraph.id(s))) - 1)
+                    + "/" + mainGraph.numVertices() + " actors with average separation " + stats.averageSeparation());
         }
     }
 }
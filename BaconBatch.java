@@ -0,0 +1,419 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Batch mode for Bacon Game: reads game commands from a file or standard input and writes machine-readable
+ * results. Commands are grouped by the center of the universe they apply to (set by u lines, as in the game),
+ * so each center's BFS runs once, into one reused tree; results go out in group order, tagged with their
+ * line number, and long lists are streamed one actor at a time instead of being built in memory.
+ *
+ * Usage: java BaconBatch [--format jsonl|tsv] [--out file] [--snapshot [file]] [--movies] [--mapped [file]] [commands file]
+ * (reads standard input when no commands file is given)
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconBatch {
+    /**
+     * One command line and the center it applies to
+     */
+    private static class Query {
+        final int line;
+        final String center, command;
+
+        Query(int line, String center, String command) {
+            this.line = line;
+            this.center = center;
+            this.command = command;
+        }
+    }
+
+    /**
+     * Writes one record per query (JSON Lines) or one row per result (TSV)
+     */
+    private abstract static class Output {
+        final Writer out;
+
+        Output(Writer out) {
+            this.out = out;
+        }
+
+        abstract void begin(Query query) throws IOException;
+        abstract void item(String value) throws IOException;
+        abstract void error(String message) throws IOException;
+        abstract void end() throws IOException;
+    }
+
+    /**
+     * {"line":n,"center":"...","command":"...","results":[...]} or {... "error":"..."} per query
+     */
+    private static class JsonLines extends Output {
+        private boolean first;      //no result written yet for the current query
+        private boolean failed;     //current query ended in an error instead of results
+
+        JsonLines(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(Query query) throws IOException {
+            out.write("{\"line\":" + query.line + ",\"center\":");
+            string(query.center);
+            out.write(",\"command\":");
+            string(query.command);
+            first = true;
+            failed = false;
+        }
+
+        @Override
+        void item(String value) throws IOException {
+            out.write(first ? ",\"results\":[" : ",");
+            first = false;
+            string(value);
+        }
+
+        @Override
+        void error(String message) throws IOException {
+            out.write(",\"error\":");
+            string(message);
+            failed = true;
+        }
+
+        @Override
+        void end() throws IOException {
+            if (!failed) {
+                out.write(first ? ",\"results\":[]" : "]");
+            }
+            out.write("}\n");
+        }
+
+        /**
+         * Writes s as a JSON string literal
+         */
+        private void string(String s) throws IOException {
+            out.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                }
+                else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    /**
+     * line, center, command, ok or error, value; one row per result (a query with no results gets none)
+     */
+    private static class Tsv extends Output {
+        private String prefix;  //columns shared by every row of the current query
+
+        Tsv(Writer out) throws IOException {
+            super(out);
+            out.write("line\tcenter\tcommand\tstatus\tvalue\n");
+        }
+
+        @Override
+        void begin(Query query) {
+            prefix = query.line + "\t" + clean(query.center) + "\t" + clean(query.command) + "\t";
+        }
+
+        @Override
+        void item(String value) throws IOException {
+            out.write(prefix);
+            out.write("ok\t");
+            out.write(clean(value));
+            out.write('\n');
+        }
+
+        @Override
+        void error(String message) throws IOException {
+            out.write(prefix);
+            out.write("error\t");
+            out.write(clean(message));
+            out.write('\n');
+        }
+
+        @Override
+        void end() {
+        }
+
+        /**
+         * Keeps tabs and line breaks inside names from breaking the columns
+         */
+        private static String clean(String s) {
+            return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    private final ActorGraph graph;
+    private final ShortestPathResult tree;      //refilled for every center
+    private ShortestPathResult fromTree, toTree; //scratch for b
+    private final Output output;
+
+    public BaconBatch(ActorGraph g, Output output) {
+        graph = g;
+        tree = new ShortestPathResult(g);
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String format = "jsonl", outFile = null, commandFile = null;
+        Bacon.GraphOptions options = new Bacon.GraphOptions();
+        for (int i = 0; i < args.length; i++) {
+            int last = options.parse(args, i);
+            if (last >= 0) {
+                i = last;
+            }
+            else if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            }
+            else if (args[i].equals("--out") && i + 1 < args.length) {
+                outFile = args[++i];
+            }
+            else {
+                commandFile = args[i];
+            }
+        }
+        if (!format.equals("jsonl") && !format.equals("tsv")) {
+            System.err.println("--format is jsonl or tsv");
+            return;
+        }
+        Bacon.LoadedGraph loaded = options.load("inputs/bacon/actors.txt", "inputs/bacon/movies.txt", "inputs/bacon/movie-actors.txt");
+        Bacon.mainGraph = loaded.graph(); //Bacon.components() and the closeness index read these
+        Bacon.inputChecksum = loaded.checksum();
+
+        Reader in = commandFile == null ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(commandFile), StandardCharsets.UTF_8);
+        OutputStream stream = outFile == null ? System.out : new FileOutputStream(outFile);
+        try (BufferedReader commands = new BufferedReader(in);
+             Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16)) {
+            Output output = format.equals("tsv") ? new Tsv(out) : new JsonLines(out);
+            new BaconBatch(Bacon.mainGraph, output).run(commands);
+        }
+    }
+
+    /**
+     * Reads every command, then answers them a center at a time
+     */
+    public void run(BufferedReader commands) throws IOException {
+        //Key: center, Value: queries that apply to it, in input order; centers in order of first use
+        Map<String, List<Query>> groups = new LinkedHashMap<>();
+        String center = BaconUniverse.DEFAULT_CENTER;
+        String line;
+        int number = 0;
+        while ((line = commands.readLine()) != null && !line.equals("q")) {
+            number++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            groups.computeIfAbsent(center, c -> new ArrayList<>()).add(new Query(number, center, line));
+            //later lines move to the new center, if it is one
+            if (line.startsWith("u ") && graph.hasVertex(line.substring(2))) {
+                center = line.substring(2);
+            }
+        }
+
+        for (Map.Entry<String, List<Query>> group : groups.entrySet()) {
+            boolean searched = false;
+            for (Query query : group.getValue()) {
+                long start = BaconMetrics.start();
+                output.begin(query);
+                if (!searched && needsTree(query.command) && graph.hasVertex(query.center)) {
+                    BaconGraphLib.bfs(graph, graph.id(query.center), tree); //once per center
+                    searched = true;
+                }
+                answer(query);
+                output.end();
+                BaconMetrics.command(query.command, start);
+            }
+        }
+        output.out.flush();
+    }
+
+    /**
+     * Whether the command reads the center's shortest path tree
+     */
+    private static boolean needsTree(String command) {
+        return command.startsWith("p ") || command.startsWith("s ") || command.startsWith("d ");
+    }
+
+    /**
+     * Writes the results of one query; tree already holds the query's center
+     */
+    private void answer(Query query) throws IOException {
+        String[] param = query.command.split(" ", 2);
+        try {
+            switch (param[0]) {
+                case "b": {
+                    String[] names = param.length == 1 ? new String[0] : param[1].split("\\|");
+                    if (names.length != 2) {
+                        break;
+                    }
+                    pathBetween(names[0].trim(), names[1].trim());
+                    return;
+                }
+                case "c": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    closeness(Integer.parseInt(param[1]));
+                    return;
+                }
+                case "d":
+                case "s": {
+                    String[] range = param.length == 1 ? new String[0] : param[1].split(" ");
+                    if (range.length != 2) {
+                        break;
+                    }
+                    int low = Integer.parseInt(range[0]), high = Integer.parseInt(range[1]);
+                    if (param[0].equals("d")) {
+                        degrees(low, high);
+                    }
+                    else {
+                        separations(low, high);
+                    }
+                    return;
+                }
+                case "i": {
+                    if (!graph.hasVertex(query.center)) {
+                        output.error("Vertex not in graph");
+                        return;
+                    }
+                    //streamed off the component arrays, so millions of unreachable actors never sit in a list
+                    PrimitiveIterator.OfInt unreachable = Bacon.components().unreachableIds(graph.id(query.center));
+                    while (unreachable.hasNext()) {
+                        output.item(graph.name(unreachable.nextInt()));
+                    }
+                    return;
+                }
+                case "stats":
+                    for (String stat : BaconMetrics.report()) {
+                        output.item(stat);
+                    }
+                    return;
+                case "p": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    path(param[1], query.center);
+                    return;
+                }
+                case "u": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    if (!graph.hasVertex(param[1])) {
+                        output.error("Vertex not in graph");
+                    }
+                    return; //the following lines are grouped under the new center
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            //didn't input a number, same answer as below
+        }
+        output.error("invalid entry");
+    }
+
+    /**
+     * Actors on the path from actor s to the center, starting with s
+     */
+    private void path(String s, String center) throws IOException {
+        if (s.equals(center)) {
+            output.error("this actor is the center");
+        }
+        else if (!tree.hasVertex(s)) {
+            output.error("No path available");
+        }
+        else {
+            for (int v = graph.id(s); v >= 0; v = tree.parent(v)) {
+                output.item(graph.name(v));
+            }
+        }
+    }
+
+    /**
+     * Actors on a shortest path from actor a to actor b, starting with a
+     */
+    private void pathBetween(String a, String b) throws IOException {
+        if (!graph.hasVertex(a) || !graph.hasVertex(b)) {
+            output.error("Vertex not in graph");
+            return;
+        }
+        if (!Bacon.components().connected(graph.id(a), graph.id(b))) {
+            output.error("No path available");
+            return;
+        }
+        if (fromTree == null) {
+            fromTree = new ShortestPathResult(graph);
+            toTree = new ShortestPathResult(graph);
+        }
+        int[] path = BaconGraphLib.shortestPath(graph, graph.id(a), graph.id(b), fromTree, toTree);
+        if (path.length == 0) {
+            output.error("No path available");
+        }
+        for (int v : path) {
+            output.item(graph.name(v));
+        }
+    }
+
+    /**
+     * Actors with separation between low and high, in BFS order, as Bacon.separationList lists them
+     */
+    private void separations(int low, int high) throws IOException {
+        if (high < low || high < 1) {
+            return;
+        }
+        int end = tree.levelStart(Math.min(high, tree.maxDistance()) + 1);
+        for (int i = tree.levelStart(Math.max(low, 1)); i < end; i++) {
+            output.item(graph.name(tree.vertex(i)));
+        }
+    }
+
+    /**
+     * Actors in the tree with degree between low and high, highest first, in the same order as Bacon.degreeList
+     */
+    private void degrees(int low, int high) throws IOException {
+        //sort by degree, then by BFS order, packed into longs so no name is kept while sorting
+        long[] keys = new long[tree.numVertices()];
+        int size = 0;
+        for (int i = 0; i < tree.numVertices(); i++) {
+            int degree = graph.inDegree(graph.name(tree.vertex(i)));
+            if (degree >= low && degree <= high) {
+                keys[size++] = (long) (Integer.MAX_VALUE - degree) << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, size);
+        for (int k = 0; k < size; k++) {
+            output.item(graph.name(tree.vertex((int) keys[k])));
+        }
+    }
+
+    /**
+     * Top (num positive) or bottom (num negative) centers of the universe from the closeness index
+     */
+    private void closeness(int num) throws IOException {
+        if (Bacon.closeness == null) {
+            int bacon = graph.id(BaconUniverse.DEFAULT_CENTER);
+            ConnectedComponents components = Bacon.components();
+            int[] sources = components.members(components.component(bacon >= 0 ? bacon : 0));
+            Bacon.closeness = ClosenessIndex.open(graph, sources, Bacon.indexFile, Bacon.inputChecksum);
+        }
+        if (Math.abs(num) > Bacon.closeness.size()) {
+            output.error("Invalid #");
+            return;
+        }
+        for (String name : Bacon.closeness.list(num)) {
+            output.item(name);
+        }
+    }
+}
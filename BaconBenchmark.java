@@ -0,0 +1,341 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks for Bacon Game. Times the hot paths (parsing, graph build, bfs, getPath, separationList,
+ * degreeList and a sampled center ranking) with warm-up rounds, and with --compare also runs the
+ * side-by-side comparisons of the alternative engines.
+ *
+ * The timings are indicative only. This is a hand-rolled System.nanoTime loop, not JMH: every benchmark runs in
+ * the same JVM with no forks, a few fixed warm-up rounds and a volatile sink in place of a Blackhole, so GC,
+ * JIT decisions and the order the benchmarks run in all leak into the numbers. Use them to compare engines
+ * within one run, not as absolute figures.
+ *
+ * Usage: java BaconBenchmark [--synthetic <actors> [seed]] [--compare] [actors movies movie-actors]
+ * (--synthetic generates reproducible power-law input files with SyntheticCasts, e.g. 10000, 100000 or 1000000 actors)
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconBenchmark {
+    private static final int WARMUPS = 3;       //untimed rounds before measuring, so the JIT has compiled the path
+    private static final int ITERATIONS = 5;    //timed rounds
+    private static volatile long sink;          //results are folded in here so the JIT cannot drop the work
+
+    public static void main(String[] args) {
+        String actorFile = "inputs/bacon/actors.txt";
+        String movieFile = "inputs/bacon/movies.txt";
+        String movieactorFile = "inputs/bacon/movie-actors.txt";
+        boolean compare = false;
+
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--synthetic") && i + 1 < args.length) {
+                int actors = Integer.parseInt(args[++i]);
+                long seed = i + 1 < args.length && args[i + 1].matches("\\d+") ? Long.parseLong(args[++i]) : 10;
+                String directory = SyntheticCasts.defaultDirectory(actors, seed);
+                if (!new java.io.File(directory, "movie-actors.txt").exists()) {
+                    try {
+                        SyntheticCasts.write(actors, seed, directory);
+                    }
+                    catch (java.io.IOException e) {
+                        System.err.println("Cannot write synthetic files.\n" + e.getMessage());
+                        return;
+                    }
+                }
+                actorFile = directory + "/actors.txt";
+                movieFile = directory + "/movies.txt";
+                movieactorFile = directory + "/movie-actors.txt";
+            }
+            else if (args[i].equals("--compare")) {
+                compare = true;
+            }
+            else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() >= 3) {
+            actorFile = files.get(0);
+            movieFile = files.get(1);
+            movieactorFile = files.get(2);
+        }
+
+        Map<String, String> idActors = Bacon.readActors(actorFile);
+        Map<String, String> idMovies = Bacon.readMovies(movieFile);
+        Map<String, Set<String>> moviesActors = Bacon.readMoviesActors(idActors, idMovies, movieactorFile);
+
+        System.out.println("timings are indicative only: nanoTime loops in one JVM, not JMH");
+        hotPaths(actorFile, movieFile, movieactorFile, idActors.values(), moviesActors);
+        if (!compare) {
+            return;
+        }
+
+        compareMemory(idActors.values(), moviesActors);
+
+        CompactGraph graph = new CompactGraph(idActors.values(), moviesActors);
+        compareRankingThreads(graph, 1000);
+        compareMultiSource(graph, 1024);
+        compareMovieGraph(idActors.values(), moviesActors, 200);
+        comparePointToPoint(graph, 1000, 42);
+    }
+
+    /**
+     * Runs body WARMUPS times untimed and ITERATIONS times timed, and prints the mean and best time per run
+     */
+    public static void time(String name, java.util.function.LongSupplier body) {
+        for (int i = 0; i < WARMUPS; i++) {
+            sink += body.getAsLong();
+        }
+        long total = 0, best = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink += body.getAsLong();
+            long time = System.nanoTime() - start;
+            total += time;
+            best = Math.min(best, time);
+        }
+        System.out.printf("%-40s mean %10.3f ms   best %10.3f ms%n", name, total / 1e6 / ITERATIONS, best / 1e6);
+    }
+
+    /**
+     * Times the paths every game session goes through, on the given files
+     */
+    public static void hotPaths(String actorFile, String movieFile, String movieactorFile,
+                                Collection<String> actors, Map<String, Set<String>> moviesActors) {
+        System.out.println("hot paths on " + movieactorFile + ":");
+        time("parse (readActors/readMovies/readMoviesActors)", () -> {
+            Map<String, String> a = Bacon.readActors(actorFile);
+            Map<String, String> m = Bacon.readMovies(movieFile);
+            return Bacon.readMoviesActors(a, m, movieactorFile).size();
+        });
+        PipeFileLoader loader = new PipeFileLoader(ForkJoinPool.commonPool());
+        time("parse (PipeFileLoader)", () -> {
+            Map<String, String> a = loader.readNames(actorFile);
+            Map<String, String> m = loader.readNames(movieFile);
+            return loader.readMoviesActors(a, m, movieactorFile).size();
+        });
+        time("buildGraph (AdjacencyMapGraph)", () -> {
+            Graph<String, Set<String>> map = new AdjacencyMapGraph<>();
+            for (String actor : actors) {
+                map.insertVertex(actor);
+            }
+            Bacon.buildGraph(map, moviesActors);
+            return map.numEdges();
+        });
+        time("build CompactGraph", () -> new CompactGraph(actors, moviesActors).numEdges());
+
+        CompactGraph graph = new CompactGraph(actors, moviesActors);
+        int center = Math.max(0, graph.id("Kevin Bacon"));
+        ShortestPathResult tree = new ShortestPathResult(graph);
+        time("bfs from " + graph.name(center), () -> BaconGraphLib.bfs(graph, center, tree).numVertices());
+
+        //the remaining commands read Bacon's current state
+        Bacon.mainGraph = graph;
+        Bacon.center = graph.name(center);
+        Bacon.shortestPathTree = BaconGraphLib.bfs(graph, center, new ShortestPathResult(graph));
+        Bacon.baconGraph = Bacon.shortestPathTree;
+
+        Random random = new Random(7);
+        String[] targets = new String[1000];
+        for (int i = 0; i < targets.length; i++) {
+            int v = Bacon.shortestPathTree.vertex(random.nextInt(Bacon.shortestPathTree.numVertices()));
+            targets[i] = graph.name(v == center ? Bacon.shortestPathTree.vertex(Bacon.shortestPathTree.numVertices() - 1) : v);
+        }
+        time("getPath x " + targets.length, () -> {
+            long length = 0;
+            for (String target : targets) {
+                length += BaconGraphLib.getPath(Bacon.shortestPathTree, target).size();
+            }
+            return length;
+        });
+        time("separationList(1, 3)", () -> Bacon.separationList(1, 3).size());
+        time("degreeList(10, max)", () -> Bacon.degreeList(10, Integer.MAX_VALUE).size());
+
+        int[] sample = new int[Math.min(256, Bacon.baconGraph.numVertices())];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = Bacon.baconGraph.vertex(random.nextInt(Bacon.baconGraph.numVertices()));
+        }
+        time("avgSeperationList ranking, " + sample.length + " sampled centers", () -> {
+            AllSourcesSeparation all = new AllSourcesSeparation(graph, sample);
+            all.run(ForkJoinPool.commonPool(), null);
+            return all.distanceSum(0);
+        });
+    }
+
+    /**
+     * Prints retained heap and build time of the AdjacencyMapGraph built by Bacon.buildGraph
+     * against a CompactGraph built from the same casts
+     */
+    public static void compareMemory(Collection<String> actors, Map<String, Set<String>> moviesActors) {
+        long base = usedHeap();
+        long start = System.nanoTime();
+        Graph<String, Set<String>> map = new AdjacencyMapGraph<>();
+        for (String actor : actors) {
+            map.insertVertex(actor);
+        }
+        Bacon.buildGraph(map, moviesActors);
+        long mapTime = System.nanoTime() - start;
+        long mapBytes = usedHeap() - base;
+        int mapEdges = map.numEdges();
+        map = null;
+
+        base = usedHeap();
+        start = System.nanoTime();
+        CompactGraph compact = new CompactGraph(actors, moviesActors);
+        long compactTime = System.nanoTime() - start;
+        long compactBytes = usedHeap() - base;
+
+        System.out.println(compact);
+        System.out.printf("AdjacencyMapGraph: %,d edges, %,d KB, built in %d ms%n", mapEdges, mapBytes / 1024, mapTime / 1000000);
+        System.out.printf("CompactGraph:      %,d edges, %,d KB, built in %d ms%n", compact.numEdges(), compactBytes / 1024, compactTime / 1000000);
+        System.out.printf("CompactGraph uses %.1f%% of the AdjacencyMapGraph heap%n", 100.0 * compactBytes / Math.max(1, mapBytes));
+        System.out.printf("  of which names and titles: %,d KB in symbol tables%n",
+                (compact.names.memory() + compact.titles.memory()) / 1024);
+    }
+
+    /**
+     * Times AllSourcesSeparation over the first sampleSize actors with 1, 2, 4, ... worker threads
+     */
+    public static void compareRankingThreads(CompactGraph graph, int sampleSize) {
+        int[] sources = new int[Math.min(sampleSize, graph.numVertices())];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        new AllSourcesSeparation(graph, sources).run(ForkJoinPool.commonPool(), null); //warm up
+
+        long single = 0;
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long start = System.nanoTime();
+            new AllSourcesSeparation(graph, sources).run(pool, null);
+            long time = System.nanoTime() - start;
+            pool.shutdown();
+            if (threads == 1) {
+                single = time;
+            }
+            System.out.printf("AllSourcesSeparation, %d sources, %2d threads: %d ms (%.1fx)%n",
+                    sources.length, threads, time / 1000000, (double) single / time);
+        }
+    }
+
+    /**
+     * Times one BFS per source against batched bit-parallel BFS on a single thread, and checks they agree
+     */
+    public static void compareMultiSource(CompactGraph graph, int sampleSize) {
+        int[] sources = new int[Math.min(sampleSize, graph.numVertices())];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        ForkJoinPool pool = new ForkJoinPool(1);
+        AllSourcesSeparation perSource = new AllSourcesSeparation(graph, sources);
+        perSource.setBitParallel(false);
+        AllSourcesSeparation batched = new AllSourcesSeparation(graph, sources);
+        perSource.run(pool, null); //warm up
+        batched.run(pool, null);
+
+        long start = System.nanoTime();
+        perSource.run(pool, null);
+        long perSourceTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        batched.run(pool, null);
+        long batchedTime = System.nanoTime() - start;
+        pool.shutdown();
+
+        for (int i = 0; i < sources.length; i++) {
+            if (perSource.distanceSum(i) != batched.distanceSum(i) || perSource.reachedCount(i) != batched.reachedCount(i)) {
+                System.out.println("multiSourceBfs disagrees with bfs for " + graph.name(sources[i]));
+            }
+        }
+        System.out.printf("bfs per source: %d ms, multiSourceBfs: %d ms (%.1fx) for %d sources%n",
+                perSourceTime / 1000000, batchedTime / 1000000, (double) perSourceTime / batchedTime, sources.length);
+    }
+
+    /**
+     * Compares build time, retained heap and BFS time of a MovieGraph against a CompactGraph built from the
+     * same casts, and checks that BFS from the first sampleSize actors gives the same separations on both
+     */
+    public static void compareMovieGraph(Collection<String> actors, Map<String, Set<String>> moviesActors, int sampleSize) {
+        long base = usedHeap();
+        long start = System.nanoTime();
+        CompactGraph compact = new CompactGraph(actors, moviesActors);
+        long compactTime = System.nanoTime() - start;
+        long compactBytes = usedHeap() - base;
+
+        base = usedHeap();
+        start = System.nanoTime();
+        MovieGraph movies = new MovieGraph(actors, moviesActors);
+        long moviesTime = System.nanoTime() - start;
+        long moviesBytes = usedHeap() - base;
+
+        ShortestPathResult compactTree = new ShortestPathResult(compact);
+        ShortestPathResult moviesTree = new ShortestPathResult(movies);
+        int sources = Math.min(sampleSize, compact.numVertices());
+        long compactBfs = 0, moviesBfs = 0;
+        for (int v = 0; v < sources; v++) {
+            start = System.nanoTime();
+            BaconGraphLib.bfs(compact, v, compactTree);
+            compactBfs += System.nanoTime() - start;
+            start = System.nanoTime();
+            BaconGraphLib.bfs(movies, v, moviesTree);
+            moviesBfs += System.nanoTime() - start;
+
+            for (int u = 0; u < compact.numVertices(); u++) {
+                if (compactTree.distance(u) != moviesTree.distance(u)) {
+                    System.out.println("MovieGraph disagrees with CompactGraph from " + compact.name(v));
+                    break;
+                }
+            }
+        }
+
+        System.out.println(movies);
+        System.out.printf("CompactGraph: %,d KB, built in %d ms, %d bfs in %d ms%n",
+                compactBytes / 1024, compactTime / 1000000, sources, compactBfs / 1000000);
+        System.out.printf("MovieGraph:   %,d KB, built in %d ms, %d bfs in %d ms%n",
+                moviesBytes / 1024, moviesTime / 1000000, sources, moviesBfs / 1000000);
+    }
+
+    /**
+     * Times bidirectional BaconGraphLib.shortestPath against a full bfs plus getPath over random actor pairs,
+     * checking that both find paths of the same length
+     */
+    public static void comparePointToPoint(ActorGraph graph, int pairs, long seed) {
+        Random random = new Random(seed);
+        ShortestPathResult tree = new ShortestPathResult(graph);
+        ShortestPathResult fromA = new ShortestPathResult(graph), fromB = new ShortestPathResult(graph);
+        long[] fullTimes = new long[pairs], pairTimes = new long[pairs];
+
+        for (int i = 0; i < pairs; i++) {
+            int a = random.nextInt(graph.numVertices()), b = random.nextInt(graph.numVertices());
+
+            long start = System.nanoTime();
+            BaconGraphLib.bfs(graph, b, tree);
+            int fullLength = tree.distance(a);
+            fullTimes[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int[] path = BaconGraphLib.shortestPath(graph, a, b, fromA, fromB);
+            pairTimes[i] = System.nanoTime() - start;
+
+            if (path.length - 1 != fullLength) {
+                System.out.println("shortestPath disagrees with bfs between " + graph.name(a) + " and " + graph.name(b));
+            }
+        }
+        Arrays.sort(fullTimes);
+        Arrays.sort(pairTimes);
+        System.out.printf("full tree:     p50 %d us, p99 %d us over %d pairs%n",
+                fullTimes[pairs / 2] / 1000, fullTimes[pairs * 99 / 100] / 1000, pairs);
+        System.out.printf("bidirectional: p50 %d us, p99 %d us over %d pairs%n",
+                pairTimes[pairs / 2] / 1000, pairTimes[pairs * 99 / 100] / 1000, pairs);
+    }
+
+    /**
+     * Heap in use after asking for a full collection
+     */
+    public static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -36,6 +36,475 @@ public class BaconGraphLib {
         return pathTree;
     }
 
+    /**
+     * BFS over a CompactGraph's actor ids; refills the given result in place instead of building
+     * a path tree Graph, so repeated calls allocate nothing. Returns the result.
+     */
+    public static ShortestPathResult bfs(CompactGraph g, int source, ShortestPathResult result) {
+        long start = BaconMetrics.start();
+        result.grow(g.numVertices()); //the graph may have gained actors since result was allocated
+        result.clear();
+        int[] distance = result.distance;
+        int[] queue = result.order; //reached actors are appended to order, so it doubles as a queue that never wraps
+
+        int head = 0;
+        result.visit(source, 0, -1, -1); //enqueue start vertex
+        while (head < result.reached) { //loop until no more vertices
+            int u = queue[head++]; //dequeue
+            int end = g.endEdge(u);
+            for (int e = g.firstEdge(u); e < end; e++) { //loop over neighbors
+                int v = g.target(e);
+                if (distance[v] < 0) { //if neighbor not visited, then neighbor is discovered from this vertex
+                    result.visit(v, distance[u] + 1, u, e); //enqueue neighbor
+                }
+            }
+        }
+        BaconMetrics.bfs(1, result.reached, start);
+        return result;
+    }
+
+    /**
+     * BFS over a MovieGraph's actor ids, stepping actor -> movie -> actor; each movie's cast is expanded
+     * at most once per traversal. Refills the given result in place, like the CompactGraph version.
+     */
+    public static ShortestPathResult bfs(MovieGraph g, int source, ShortestPathResult result) {
+        long start = BaconMetrics.start();
+        result.clear();
+        int[] distance = result.distance;
+        int[] queue = result.order; //reached actors are appended to order, so it doubles as a queue that never wraps
+        int[] movieSeen = result.movieSeen;
+        int stamp = result.movieStamp;
+
+        int head = 0;
+        result.visit(source, 0, -1, -1); //enqueue start vertex
+        while (head < result.reached) { //loop until no more vertices
+            int u = queue[head++]; //dequeue
+            int moviesEnd = g.firstMovie(u + 1);
+            for (int i = g.firstMovie(u); i < moviesEnd; i++) { //loop over the actor's movies
+                int m = g.movie(i);
+                if (movieSeen[m] == stamp) { //an earlier actor already expanded this cast
+                    continue;
+                }
+                movieSeen[m] = stamp;
+                int castEnd = g.firstCastMember(m + 1);
+                for (int j = g.firstCastMember(m); j < castEnd; j++) { //loop over co-stars in the movie
+                    int v = g.castMember(j);
+                    if (distance[v] < 0) { //if co-star not visited, then co-star is discovered from this vertex
+                        result.visit(v, distance[u] + 1, u, m); //enqueue co-star
+                    }
+                }
+            }
+        }
+        BaconMetrics.bfs(1, result.reached, start);
+        return result;
+    }
+
+    /**
+     * BFS over a MappedGraph's actor ids, a level at a time; each level is sorted by id before it is expanded,
+     * so reads of the mapped offsets and targets move forward through the file instead of jumping around it.
+     * Refills the given result in place, like the CompactGraph version.
+     */
+    public static ShortestPathResult bfs(MappedGraph g, int source, ShortestPathResult result) {
+        long start = BaconMetrics.start();
+        result.clear();
+        int[] distance = result.distance;
+        int[] queue = result.order; //reached actors are appended to order, so it doubles as a queue that never wraps
+
+        int head = 0;
+        result.visit(source, 0, -1, -1); //enqueue start vertex
+        while (head < result.reached) { //loop until no more levels
+            int levelEnd = result.reached;
+            result.sortLevel(head, levelEnd);
+            for (; head < levelEnd; head++) {
+                int u = queue[head]; //dequeue
+                long end = g.endEdge(u);
+                for (long e = g.firstEdge(u); e < end; e++) { //loop over neighbors
+                    int v = g.target(e);
+                    if (distance[v] < 0) { //if neighbor not visited, then neighbor is discovered from this vertex
+                        result.visit(v, distance[u] + 1, u, -1); //enqueue neighbor
+                    }
+                }
+            }
+        }
+        BaconMetrics.bfs(1, result.reached, start);
+        return result;
+    }
+
+    /**
+     * BFS over whichever kind of ActorGraph g is
+     */
+    public static ShortestPathResult bfs(ActorGraph g, int source, ShortestPathResult result) {
+        if (g instanceof MovieGraph) {
+            return bfs((MovieGraph) g, source, result);
+        }
+        if (g instanceof MappedGraph) {
+            return bfs((MappedGraph) g, source, result);
+        }
+        return bfs((CompactGraph) g, source, result);
+    }
+
+    /**
+     * Per-thread bitmasks for multiSourceBfs; bit i of a vertex's mask stands for the i-th source of a batch
+     */
+    public static class MultiSourceScratch {
+        final long[] seen;      //sources that have reached each actor
+        final long[] visit;     //sources whose frontier contains each actor
+        final long[] next;      //sources reaching each actor on the next level
+        final long[] movieNext; //MovieGraph only; sources reaching each movie on the next level
+        final long[] movieDone; //MovieGraph only; sources that have already expanded each movie
+
+        public MultiSourceScratch(ActorGraph g) {
+            seen = new long[g.numVertices()];
+            visit = new long[g.numVertices()];
+            next = new long[g.numVertices()];
+            int movies = g instanceof MovieGraph ? ((MovieGraph) g).numMovies() : 0;
+            movieNext = new long[movies];
+            movieDone = new long[movies];
+        }
+    }
+
+    /**
+     * Bit-parallel BFS (MS-BFS) from sources[from] .. sources[to - 1], at most 64 at a time, so each adjacency
+     * list is scanned once per level for the whole batch. Stores each source's sum of separations and number of
+     * connected actors in distanceSums[i] and reachedCounts[i], the same values averageSeparation divides.
+     */
+    public static void multiSourceBfs(ActorGraph g, int[] sources, int from, int to,
+                                      long[] distanceSums, int[] reachedCounts, MultiSourceScratch scratch) {
+        if (to - from > 64) {
+            throw new IllegalArgumentException("multiSourceBfs handles at most 64 sources per batch");
+        }
+        long start = BaconMetrics.start();
+        int n = g.numVertices();
+        long[] seen = scratch.seen, visit = scratch.visit, next = scratch.next;
+        Arrays.fill(seen, 0);
+        Arrays.fill(visit, 0);
+        Arrays.fill(scratch.movieDone, 0);
+
+        for (int i = from; i < to; i++) { //every source starts out seen by itself
+            seen[sources[i]] |= 1L << (i - from);
+            visit[sources[i]] |= 1L << (i - from);
+            distanceSums[i] = 0;
+            reachedCounts[i] = 0;
+        }
+
+        boolean frontier = true;
+        for (int level = 1; frontier; level++) {
+            //push every frontier mask to the neighbors
+            if (g instanceof MovieGraph) {
+                pushThroughMovies((MovieGraph) g, scratch);
+            }
+            else if (g instanceof MappedGraph) {
+                MappedGraph mg = (MappedGraph) g;
+                for (int u = 0; u < n; u++) { //in id order, which is file order
+                    long mask = visit[u];
+                    if (mask != 0) {
+                        long end = mg.endEdge(u);
+                        for (long e = mg.firstEdge(u); e < end; e++) {
+                            next[mg.target(e)] |= mask;
+                        }
+                    }
+                }
+            }
+            else {
+                CompactGraph cg = (CompactGraph) g;
+                for (int u = 0; u < n; u++) {
+                    long mask = visit[u];
+                    if (mask != 0) {
+                        int end = cg.endEdge(u);
+                        for (int e = cg.firstEdge(u); e < end; e++) {
+                            next[cg.target(e)] |= mask;
+                        }
+                    }
+                }
+            }
+            //keep only sources that had not seen the actor yet; they reach it at this level
+            frontier = false;
+            for (int v = 0; v < n; v++) {
+                long discovered = next[v] & ~seen[v];
+                next[v] = 0;
+                visit[v] = discovered;
+                if (discovered != 0) {
+                    seen[v] |= discovered;
+                    frontier = true;
+                    for (long bits = discovered; bits != 0; bits &= bits - 1) {
+                        int lane = from + Long.numberOfTrailingZeros(bits);
+                        distanceSums[lane] += level;
+                        reachedCounts[lane]++;
+                    }
+                }
+            }
+        }
+        long visited = to - from; //each source visits itself too
+        for (int i = from; i < to; i++) {
+            visited += reachedCounts[i];
+        }
+        BaconMetrics.bfs(to - from, visited, start);
+    }
+
+    /**
+     * One multiSourceBfs level over a MovieGraph: frontier masks go from actors to their movies, then from
+     * each movie to its cast, skipping sources that already expanded the movie on an earlier level
+     */
+    private static void pushThroughMovies(MovieGraph g, MultiSourceScratch scratch) {
+        long[] visit = scratch.visit, next = scratch.next, movieNext = scratch.movieNext, movieDone = scratch.movieDone;
+        for (int u = 0; u < visit.length; u++) {
+            long mask = visit[u];
+            if (mask != 0) {
+                int end = g.firstMovie(u + 1);
+                for (int i = g.firstMovie(u); i < end; i++) {
+                    movieNext[g.movie(i)] |= mask;
+                }
+            }
+        }
+        for (int m = 0; m < movieNext.length; m++) {
+            long mask = movieNext[m] & ~movieDone[m];
+            movieNext[m] = 0;
+            if (mask != 0) {
+                movieDone[m] |= mask;
+                int end = g.firstCastMember(m + 1);
+                for (int j = g.firstCastMember(m); j < end; j++) {
+                    next[g.castMember(j)] |= mask;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bidirectional BFS for a shortest path between actors a and b, without building either full tree; each
+     * round expands one whole level of whichever side has the smaller frontier. fromA and fromB are scratch
+     * trees for g that get refilled. Returns the actor ids on the path from a to b, or an empty array if none.
+     */
+    public static int[] shortestPath(ActorGraph g, int a, int b, ShortestPathResult fromA, ShortestPathResult fromB) {
+        if (a == b) {
+            return new int[] {a};
+        }
+        fromA.grow(g.numVertices());
+        fromB.grow(g.numVertices());
+        start(fromA, a);
+        start(fromB, b);
+        int headA = 0, headB = 0; //start of the current frontier in each queue
+
+        int meet = -1;
+        while (meet < 0 && headA < fromA.reached && headB < fromB.reached) {
+            if (fromA.reached - headA <= fromB.reached - headB) {
+                int end = fromA.reached;
+                meet = expandLevel(g, fromA, headA, fromB);
+                headA = end;
+            }
+            else {
+                int end = fromB.reached;
+                meet = expandLevel(g, fromB, headB, fromA);
+                headB = end;
+            }
+        }
+        if (meet < 0) {
+            return new int[0];
+        }
+
+        //walk from the meeting actor back to a, then forward to b
+        int[] path = new int[fromA.distance(meet) + fromB.distance(meet) + 1];
+        int i = fromA.distance(meet);
+        for (int v = meet; v >= 0; v = fromA.parent(v)) {
+            path[i--] = v;
+        }
+        i = fromA.distance(meet);
+        for (int v = meet; v >= 0; v = fromB.parent(v)) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Empties side and makes source its only, already-visited actor
+     */
+    private static void start(ShortestPathResult side, int source) {
+        side.clear();
+        side.visit(source, 0, -1, -1);
+    }
+
+    /**
+     * Visits every neighbor of the frontier side.order[head .. side.reached - 1]; returns the newly visited actor
+     * that other has also reached with the smallest total distance, or -1 if the sides have not met
+     */
+    private static int expandLevel(ActorGraph g, ShortestPathResult side, int head, ShortestPathResult other) {
+        int end = side.reached;
+        int meet = -1, best = Integer.MAX_VALUE;
+        if (g instanceof MappedGraph) {
+            side.sortLevel(head, end); //read the mapped rows in file order
+        }
+        for (int k = head; k < end; k++) {
+            int u = side.order[k];
+            if (g instanceof MovieGraph) {
+                MovieGraph mg = (MovieGraph) g;
+                for (int i = mg.firstMovie(u); i < mg.firstMovie(u + 1); i++) {
+                    int m = mg.movie(i);
+                    if (side.movieSeen[m] == side.movieStamp) {
+                        continue;
+                    }
+                    side.movieSeen[m] = side.movieStamp;
+                    for (int j = mg.firstCastMember(m); j < mg.firstCastMember(m + 1); j++) {
+                        int v = mg.castMember(j);
+                        if (side.distance[v] < 0) {
+                            side.visit(v, side.distance[u] + 1, u, m);
+                            if (other.distance[v] >= 0 && side.distance[v] + other.distance[v] < best) {
+                                best = side.distance[v] + other.distance[v];
+                                meet = v;
+                            }
+                        }
+                    }
+                }
+            }
+            else if (g instanceof MappedGraph) {
+                MappedGraph mg = (MappedGraph) g;
+                for (long e = mg.firstEdge(u); e < mg.endEdge(u); e++) {
+                    int v = mg.target(e);
+                    if (side.distance[v] < 0) {
+                        side.visit(v, side.distance[u] + 1, u, -1);
+                        if (other.distance[v] >= 0 && side.distance[v] + other.distance[v] < best) {
+                            best = side.distance[v] + other.distance[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+            else {
+                CompactGraph cg = (CompactGraph) g;
+                for (int e = cg.firstEdge(u); e < cg.endEdge(u); e++) {
+                    int v = cg.target(e);
+                    if (side.distance[v] < 0) {
+                        side.visit(v, side.distance[u] + 1, u, e);
+                        if (other.distance[v] >= 0 && side.distance[v] + other.distance[v] < best) {
+                            best = side.distance[v] + other.distance[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+        return meet;
+    }
+
+    /**
+     * Repairs tree after g.addMovie linked every pair in cast (sorted actor ids): separations can only shrink,
+     * and only through the new movie, so the search starts at the cast members that get closer and spreads
+     * only as far as separations keep shrinking. Returns the number of actors whose separation changed.
+     */
+    public static int repairAfterAdd(CompactGraph g, ShortestPathResult tree, int[] cast) {
+        tree.grow(g.numVertices());
+        int best = -1; //separation of the cast member closest to the root
+        for (int c : cast) {
+            if (tree.distance[c] >= 0 && (best < 0 || tree.distance[c] < best)) {
+                best = tree.distance[c];
+            }
+        }
+        if (best < 0) {
+            return 0; //the movie is outside the root's part of the universe
+        }
+
+        PriorityQueue<Long> queue = new PriorityQueue<>(); //separation << 32 | actor id, nearest first
+        for (int c : cast) {
+            if (tree.distance[c] < 0 || tree.distance[c] > best + 1) {
+                queue.add((long) (best + 1) << 32 | c);
+            }
+        }
+        return settle(g, tree, queue);
+    }
+
+    /**
+     * Repairs tree after g.removeMovie took the movie off every pair in cast (sorted actor ids): separations can
+     * only grow. Actors whose tree edge is gone look for another neighbor one step closer to the root; only those
+     * that find none (and then their children) are cut off and reattached. Returns the number of actors whose separation changed.
+     */
+    public static int repairAfterRemove(CompactGraph g, ShortestPathResult tree, int[] cast) {
+        tree.grow(g.numVertices());
+        int[] distance = tree.distance;
+        PriorityQueue<Long> candidates = new PriorityQueue<>(); //separation << 32 | actor id, nearest first
+        for (int c : cast) {
+            if (distance[c] > 0 && g.edge(tree.parent[c], c) < 0) {
+                candidates.add((long) distance[c] << 32 | c);
+            }
+        }
+
+        //candidates go nearest first, so every actor one step closer has already been settled
+        Set<Integer> affected = new HashSet<>();
+        while (!candidates.isEmpty()) {
+            long top = candidates.remove();
+            int d = (int) (top >>> 32), v = (int) top;
+            if (affected.contains(v)) {
+                continue;
+            }
+            int support = -1;
+            for (int e = g.firstEdge(v); e < g.endEdge(v) && support < 0; e++) {
+                int u = g.target(e);
+                if (distance[u] == d - 1 && !affected.contains(u)) {
+                    support = u;
+                }
+            }
+            if (support >= 0) {
+                tree.reparent(v, support, g.edge(support, v)); //same separation through another co-star
+                continue;
+            }
+            affected.add(v);
+            for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                int x = g.target(e);
+                if (distance[x] == d + 1 && tree.parent[x] == v) {
+                    candidates.add((long) (d + 1) << 32 | x);
+                }
+            }
+        }
+
+        //cut the affected actors off, then reattach them from their nearest unaffected neighbors
+        for (int v : affected) {
+            tree.move(v, -1, -1, -1);
+        }
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (int v : affected) {
+            int best = -1;
+            for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                int u = g.target(e);
+                if (distance[u] >= 0 && (best < 0 || distance[u] + 1 < best)) {
+                    best = distance[u] + 1;
+                }
+            }
+            if (best > 0) {
+                queue.add((long) best << 32 | v);
+            }
+        }
+        settle(g, tree, queue);
+        return affected.size();
+    }
+
+    /**
+     * Gives every queued actor its queued separation, nearest first, unless it is already as close, and queues
+     * its neighbors one step further; each actor is parented to a neighbor one step closer. Returns the number moved.
+     */
+    private static int settle(CompactGraph g, ShortestPathResult tree, PriorityQueue<Long> queue) {
+        int[] distance = tree.distance;
+        int moved = 0;
+        while (!queue.isEmpty()) {
+            long top = queue.remove();
+            int d = (int) (top >>> 32), v = (int) top;
+            if (distance[v] >= 0 && distance[v] <= d) {
+                continue;
+            }
+            int p = -1;
+            for (int e = g.firstEdge(v); e < g.endEdge(v) && p < 0; e++) {
+                if (distance[g.target(e)] == d - 1) {
+                    p = g.target(e);
+                }
+            }
+            tree.move(v, d, p, g.edge(p, v));
+            moved++;
+            for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                int x = g.target(e);
+                if (distance[x] < 0 || distance[x] > d + 1) {
+                    queue.add((long) (d + 1) << 32 | x);
+                }
+            }
+        }
+        return moved;
+    }
+
     /**
      * Given a shortest path tree and a vertex, constructs a path from the vertex back to the center of the universe.
      */
@@ -63,6 +532,28 @@ public class BaconGraphLib {
         return path;
     }
 
+    /**
+     * Given a ShortestPathResult and an actor name, constructs a path from the actor back to the center of the universe.
+     */
+    public static List<String> getPath(ShortestPathResult tree, String name) {
+        List<String> path = new ArrayList<>();
+
+        if (tree == null || tree.root() < 0 || name.equals(tree.graph().name(tree.root()))) {
+            System.out.println("Error");
+            return path;
+        }
+        if (!tree.hasVertex(name)) {
+            System.out.println("No path available");
+            return path;
+        }
+
+        //follow parents from the actor back to center of the universe
+        for (int current = tree.graph().id(name); current >= 0; current = tree.parent(current)) {
+            path.add(tree.graph().name(current));
+        }
+        return path;
+    }
+
     /**
      * Given a graph and a subgraph (here shortest path tree), determines which
      * vertices are in the graph but not the subgraph (here, not reached by BFS).
@@ -81,24 +572,44 @@ public class BaconGraphLib {
     }
 
     /**
-     * Finds the average distance-from-root in a shortest path tree.
+     * Determines which actors in the tree's graph were not reached by BFS; the tree keeps them
+     * apart already, so this costs only the size of the answer.
+     */
+    public static Set<String> missingVertices(ShortestPathResult tree) {
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < tree.numUnreached(); i++) {
+            set.add(tree.graph().name(tree.unreached(i)));
+        }
+        return set;
+    }
+
+    /**
+     * Finds the average distance-from-root in a shortest path tree, walking it level by level
+     * (no recursion, so long chains cannot overflow the stack).
      */
     public static <V,E> double averageSeparation(Graph<V,E> tree, V root) {
+        double sum = 0;
+        List<V> level = new ArrayList<>();
+        level.add(root);
+        for (int lvl = 1; !level.isEmpty(); lvl++) {
+            List<V> next = new ArrayList<>();
+            for (V v : level) {
+                for (V child : tree.inNeighbors(v)) { //children point at their parents
+                    next.add(child);
+                }
+            }
+            sum += (double) next.size() * lvl; //every vertex in this level is lvl away from the root
+            level = next;
+        }
         //divide sum of separations by the number of vertices
-        return averageSeparationHelper(tree, root, 1) / (tree.numEdges());
+        return sum / (tree.numEdges());
     }
 
     /**
-     * Recursive helper method to calculate average separation
+     * Finds the average distance-from-root in a ShortestPathResult, from the sum BFS kept while it ran.
      */
-    private static <V,E> double averageSeparationHelper(Graph<V,E> tree, V root, int lvl) {
-       //calculate separation from root for all the vertices in the current level
-        double sum = tree.inDegree(root) * lvl;
-
-        //recurse through neighbors
-        for(V next: tree.inNeighbors(root)) {
-            sum += averageSeparationHelper(tree, next, lvl+1);
-        }
-        return sum;
+    public static double averageSeparation(ShortestPathResult tree) {
+        //divide sum of separations by the number of actors connected to the root
+        return (double) tree.distanceSum() / tree.numEdges();
     }
 }
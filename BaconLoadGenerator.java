@@ -0,0 +1,100 @@
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for BaconServer: a number of simulated users, each with its own session, send a mix of
+ * p, b, u and s queries about random actors as fast as answers come back; prints throughput and
+ * p50/p90/p99 latency.
+ *
+ * Usage: java BaconLoadGenerator [url] [users] [requests per user] [actors file]
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconLoadGenerator {
+    public static void main(String[] args) throws InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        String actorFile = args.length > 3 ? args[3] : "inputs/bacon/actors.txt";
+
+        List<String> actors = new ArrayList<>(Bacon.readActors(actorFile).values());
+        HttpClient client = HttpClient.newHttpClient();
+        long[][] latencies = new long[users][requests];
+        AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[users];
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            int user = i;
+            threads[i] = new Thread(() -> {
+                Random random = new Random(user);
+                String session = null;
+                for (int r = 0; r < requests; r++) {
+                    String command = command(random, actors);
+                    String uri = url + "/query?q=" + URLEncoder.encode(command, StandardCharsets.UTF_8)
+                            + (session == null ? "" : "&session=" + session);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                                HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        session = response.headers().firstValue("X-Bacon-Session").orElse(session);
+                    }
+                    catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[user][r] = System.nanoTime() - sent;
+                }
+            }, "user-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] all = new long[users * requests];
+        for (int i = 0; i < users; i++) {
+            System.arraycopy(latencies[i], 0, all, i * requests, requests);
+        }
+        Arrays.sort(all);
+        System.out.printf("%d users, %d requests in %.2f s (%.0f/s), %d errors%n", users, all.length, seconds,
+                all.length / seconds, errors.get());
+        System.out.printf("latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n", percentile(all, 0.5),
+                percentile(all, 0.9), percentile(all, 0.99), all[all.length - 1] / 1e6);
+    }
+
+    /**
+     * A random query: mostly paths to the session's center, some point-to-point paths, center changes and neighbor lists
+     */
+    private static String command(Random random, List<String> actors) {
+        String actor = actors.get(random.nextInt(actors.size()));
+        int pick = random.nextInt(10);
+        if (pick < 6) {
+            return "p " + actor;
+        }
+        if (pick < 8) {
+            return "b " + actor + "|" + actors.get(random.nextInt(actors.size()));
+        }
+        if (pick < 9) {
+            return "u " + actor;
+        }
+        return "s 1 1";
+    }
+
+    /**
+     * Latency at the given fraction of the sorted nanosecond latencies, in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e6;
+    }
+}
@@ -0,0 +1,309 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics for Bacon Game: how long each input file took to load and the graph to build, graph size,
+ * BFS traversals and the actors they visited per second, per-command latency histograms and path tree cache
+ * hit rates. Printed by the stats command and published over JMX as bacon:type=Metrics.
+ *
+ * Recording is on unless the JVM is started with -Dbacon.metrics=false; ENABLED is a constant, so with it off
+ * the JIT drops every recording call and start() does not even read the clock.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconMetrics {
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("bacon.metrics", "true"));
+
+    /**
+     * What JConsole, VisualVM and other JMX clients see
+     */
+    public interface MetricsMXBean {
+        Map<String, Long> getLoadMillis();
+        long getBuildMillis();
+        int getVertices();
+        long getEdges();
+        long getBfsCount();
+        long getVerticesVisited();
+        double getVerticesPerSecond();
+        long getCacheHits();
+        long getCacheMisses();
+        double getCacheHitRate();
+        Map<String, Long> getCommandCounts();
+        Map<String, Double> getCommandP50Millis();
+        Map<String, Double> getCommandP99Millis();
+        Map<String, Double> getCommandMaxMillis();
+        List<String> getReport();
+        void reset();
+    }
+
+    private static final Map<String, Long> loadNanos = new ConcurrentHashMap<>();  //Key: file, Value: last load time
+    private static volatile long buildNanos;
+    private static volatile ActorGraph graph;       //graph whose size is reported; its edges are counted only when asked for
+    private static final LongAdder bfsCount = new LongAdder();
+    private static final LongAdder bfsVisited = new LongAdder();
+    private static final LongAdder bfsNanos = new LongAdder();
+    //Key: command letter (or name), Value: its latencies; sorted so reports list commands in order
+    private static final Map<String, LatencyHistogram> commands = new ConcurrentSkipListMap<>();
+    //commands that get a histogram of their own; anything else a client sends is recorded as "other"
+    private static final Set<String> KNOWN_COMMANDS = new HashSet<>(Arrays.asList(
+            "a", "b", "c", "d", "i", "m", "p", "r", "s", "stats", "u"));
+    private static volatile PathTreeCache cache;    //cache whose hit rate is reported; swapped on reload
+    private static boolean registered;
+
+    /**
+     * Start time to pass to the recording methods, or 0 without reading the clock when metrics are off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start spent loading one input file
+     */
+    public static void loaded(String file, long start) {
+        if (ENABLED) {
+            loadNanos.put(file, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the time since start spent building g, and its size
+     */
+    public static void built(ActorGraph g, long start) {
+        if (ENABLED) {
+            buildNanos = System.nanoTime() - start;
+            graphChanged(g);
+        }
+    }
+
+    /**
+     * Reports the size of g from now on, after it is loaded or movies are added or removed; nothing is counted
+     * here, since numEdges() expands every cast of a MovieGraph
+     */
+    public static void graphChanged(ActorGraph g) {
+        if (ENABLED) {
+            graph = g;
+        }
+    }
+
+    /**
+     * Records count traversals started at start that visited visited actors between them
+     */
+    public static void bfs(int count, long visited, long start) {
+        if (ENABLED) {
+            bfsNanos.add(System.nanoTime() - start);
+            bfsCount.add(count);
+            bfsVisited.add(visited);
+        }
+    }
+
+    /**
+     * Records the latency of one command, named by its first word
+     */
+    public static void command(String line, long start) {
+        if (ENABLED) {
+            long nanos = System.nanoTime() - start;
+            int space = line.indexOf(' ');
+            String name = space < 0 ? line : line.substring(0, space);
+            if (!KNOWN_COMMANDS.contains(name)) {
+                name = "other"; //keep typos and clients from growing the map
+            }
+            commands.computeIfAbsent(name, k -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Reports the hit rate of trees from now on
+     */
+    public static void watch(PathTreeCache trees) {
+        cache = trees;
+    }
+
+    /**
+     * Publishes the metrics as the MBean bacon:type=Metrics, once per JVM; does nothing when metrics are off
+     */
+    public static synchronized void register() {
+        if (!ENABLED || registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("bacon:type=Metrics"));
+            registered = true;
+        }
+        catch (JMException e) {
+            System.err.println("Cannot register metrics MBean.\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Lines for the stats command
+     */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        if (!ENABLED) {
+            lines.add("metrics are off, start with -Dbacon.metrics=true to record them");
+            return lines;
+        }
+        for (Map.Entry<String, Long> load : new TreeMap<>(loadNanos).entrySet()) {
+            lines.add(String.format("load %s: %d ms", load.getKey(), load.getValue() / 1_000_000));
+        }
+        lines.add(String.format("build: %d ms, %,d actors, %,d edges", buildNanos / 1_000_000, vertices(), edges()));
+        lines.add(String.format("bfs: %,d traversals, %,d actors visited, %,.0f actors/s", bfsCount.sum(),
+                bfsVisited.sum(), verticesPerSecond()));
+        PathTreeCache trees = cache;
+        if (trees != null) {
+            lines.add(String.format("cache: %.1f%% hits; %s", 100 * hitRate(trees), trees));
+        }
+        for (Map.Entry<String, LatencyHistogram> command : commands.entrySet()) {
+            lines.add(command.getKey() + ": " + command.getValue());
+        }
+        Runtime runtime = Runtime.getRuntime();
+        lines.add(String.format("heap: %,d of %,d MB used", (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+                runtime.maxMemory() >> 20));
+        return lines;
+    }
+
+    /**
+     * Clears the BFS counters and command histograms; load and build times stay
+     */
+    public static void reset() {
+        bfsCount.reset();
+        bfsVisited.reset();
+        bfsNanos.reset();
+        commands.clear();
+    }
+
+    private static int vertices() {
+        ActorGraph g = graph;
+        return g == null ? 0 : g.numVertices();
+    }
+
+    private static long edges() {
+        ActorGraph g = graph;
+        return g == null ? 0 : g.numEdges();
+    }
+
+    private static double verticesPerSecond() {
+        long nanos = bfsNanos.sum();
+        return nanos == 0 ? 0 : bfsVisited.sum() * 1e9 / nanos;
+    }
+
+    private static double hitRate(PathTreeCache trees) {
+        long hits = trees.hits(), total = hits + trees.misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * One value of every command histogram, converted from nanoseconds to milliseconds
+     */
+    private static Map<String, Double> commandMillis(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Double> map = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> command : commands.entrySet()) {
+            map.put(command.getKey(), value.applyAsLong(command.getValue()) / 1e6);
+        }
+        return map;
+    }
+
+    /**
+     * The MXBean itself, reading the static fields above
+     */
+    private static class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getLoadMillis() {
+            Map<String, Long> map = new TreeMap<>();
+            for (Map.Entry<String, Long> load : loadNanos.entrySet()) {
+                map.put(load.getKey(), load.getValue() / 1_000_000);
+            }
+            return map;
+        }
+
+        @Override
+        public long getBuildMillis() {
+            return buildNanos / 1_000_000;
+        }
+
+        @Override
+        public int getVertices() {
+            return vertices();
+        }
+
+        @Override
+        public long getEdges() {
+            return edges();
+        }
+
+        @Override
+        public long getBfsCount() {
+            return bfsCount.sum();
+        }
+
+        @Override
+        public long getVerticesVisited() {
+            return bfsVisited.sum();
+        }
+
+        @Override
+        public double getVerticesPerSecond() {
+            return verticesPerSecond();
+        }
+
+        @Override
+        public long getCacheHits() {
+            PathTreeCache trees = cache;
+            return trees == null ? 0 : trees.hits();
+        }
+
+        @Override
+        public long getCacheMisses() {
+            PathTreeCache trees = cache;
+            return trees == null ? 0 : trees.misses();
+        }
+
+        @Override
+        public double getCacheHitRate() {
+            PathTreeCache trees = cache;
+            return trees == null ? 0 : hitRate(trees);
+        }
+
+        @Override
+        public Map<String, Long> getCommandCounts() {
+            Map<String, Long> map = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> command : commands.entrySet()) {
+                map.put(command.getKey(), command.getValue().count());
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Double> getCommandP50Millis() {
+            return commandMillis(h -> h.percentile(0.5));
+        }
+
+        @Override
+        public Map<String, Double> getCommandP99Millis() {
+            return commandMillis(h -> h.percentile(0.99));
+        }
+
+        @Override
+        public Map<String, Double> getCommandMaxMillis() {
+            return commandMillis(LatencyHistogram::max);
+        }
+
+        @Override
+        public List<String> getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            BaconMetrics.reset();
+        }
+    }
+}
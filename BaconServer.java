@@ -0,0 +1,290 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * HTTP query server for Bacon Game, so many users can play at once. Every request runs on its own virtual
+ * thread (or a pooled thread before JDK 21) against the current BaconUniverse, which a reload replaces in one
+ * volatile write; each session keeps its own center of the universe.
+ *
+ * GET /query?q=<command>[&session=<id>] answers the p, s, d, i, c, u, b and stats commands of Bacon, one result per line;
+ * the session id comes back in the X-Bacon-Session header (a new one when none was given).
+ * GET /reload reads the input files again and swaps the new universe in.
+ *
+ * Usage: java BaconServer [--port <n>] [--snapshot [file]] [--movies] [--mapped [file]]
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconServer {
+    private static final long SESSION_IDLE_MILLIS = 30 * 60 * 1000;    //sessions unused this long are dropped
+
+    /**
+     * One client's state: just its center of the universe, by name, so it carries over reloads
+     */
+    private static class Session {
+        volatile String center = BaconUniverse.DEFAULT_CENTER;
+        volatile long lastUsed = System.currentTimeMillis();
+    }
+
+    private final Bacon.GraphOptions options;  //how to load the graph, again on every reload
+    private final String actorFile, movieFile, movieactorFile;
+    private volatile BaconUniverse universe;    //read once per request, replaced whole by reload
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Object reloading = new Object();  //one reload at a time
+
+    public BaconServer(Bacon.GraphOptions options, String actorFile, String movieFile, String movieactorFile) {
+        this.options = options;
+        this.actorFile = actorFile;
+        this.movieFile = movieFile;
+        this.movieactorFile = movieactorFile;
+        universe = load();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        Bacon.GraphOptions options = new Bacon.GraphOptions();
+        for (int i = 0; i < args.length; i++) {
+            int last = options.parse(args, i);
+            if (last >= 0) {
+                i = last;
+            }
+            else if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            }
+        }
+
+        BaconServer server = new BaconServer(options, "inputs/bacon/actors.txt",
+                "inputs/bacon/movies.txt", "inputs/bacon/movie-actors.txt");
+        server.start(port);
+        BaconMetrics.register();
+    }
+
+    /**
+     * Reads the graph the way Bacon does and wraps it in a new universe
+     */
+    private BaconUniverse load() {
+        Bacon.LoadedGraph loaded = options.load(actorFile, movieFile, movieactorFile);
+        BaconUniverse next = new BaconUniverse(loaded.graph(), loaded.checksum(), Bacon.indexFile);
+        BaconMetrics.watch(next.trees());
+        return next;
+    }
+
+    /**
+     * Starts serving on the given port and sweeping idle sessions in the background
+     */
+    public HttpServer start(int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.createContext("/query", this::query);
+        http.createContext("/reload", this::reload);
+        http.setExecutor(newExecutor());
+        http.start();
+
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(() -> {
+            long cutoff = System.currentTimeMillis() - SESSION_IDLE_MILLIS;
+            sessions.values().removeIf(session -> session.lastUsed < cutoff);
+        }, 1, 1, TimeUnit.MINUTES);
+
+        System.out.println("serving " + universe + " on http://localhost:" + port + "/query");
+        return http;
+    }
+
+    /**
+     * A virtual thread per request where the JDK has them (21 and later), otherwise a cached thread pool
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Handles /query: finds or makes the session, then answers the command in q
+     */
+    private void query(HttpExchange exchange) throws IOException {
+        long start = BaconMetrics.start();
+        Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+        String id = params.get("session");
+        Session session = id == null ? null : sessions.get(id);
+        if (session == null) {
+            id = UUID.randomUUID().toString();
+            session = new Session();
+            sessions.put(id, session);
+        }
+        session.lastUsed = System.currentTimeMillis();
+        exchange.getResponseHeaders().set("X-Bacon-Session", id);
+
+        String command = params.get("q");
+        if (command == null) {
+            respond(exchange, 400, Collections.singletonList("missing q"));
+            return;
+        }
+        try {
+            respond(exchange, 200, answer(universe, session, command));
+        }
+        catch (IllegalArgumentException e) {
+            respond(exchange, 400, Collections.singletonList(e.getMessage()));
+        }
+        BaconMetrics.command(command, start);
+    }
+
+    /**
+     * Answers one command line as Bacon's game loop would, for the given session on the given universe
+     */
+    private List<String> answer(BaconUniverse u, Session session, String line) {
+        String[] param = line.split(" ", 2);
+        try {
+            switch (param[0]) {
+                case "b": {
+                    String[] names = param.length == 1 ? new String[0] : param[1].split("\\|");
+                    if (names.length != 2) {
+                        break;
+                    }
+                    return u.pathBetween(names[0].trim(), names[1].trim());
+                }
+                case "c": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    int num = Integer.parseInt(param[1]);
+                    ClosenessIndex closeness = u.closeness();
+                    if (Math.abs(num) > closeness.size()) {
+                        return Collections.singletonList("Invalid #");
+                    }
+                    return closeness.list(num);
+                }
+                case "d":
+                case "s": {
+                    String[] range = param.length == 1 ? new String[0] : param[1].split(" ");
+                    if (range.length != 2) {
+                        break;
+                    }
+                    int low = Integer.parseInt(range[0]), high = Integer.parseInt(range[1]);
+                    int center = center(u, session);
+                    if (center < 0) {
+                        return Collections.singletonList("Vertex not in graph");
+                    }
+                    ShortestPathResult tree = u.trees().get(center);
+                    return param[0].equals("d") ? Bacon.degreeList(tree, low, high) : Bacon.separationList(tree, low, high);
+                }
+                case "i": {
+                    int center = center(u, session);
+                    if (center < 0) {
+                        return Collections.singletonList("Vertex not in graph");
+                    }
+                    return u.components().unreachable(center);
+                }
+                case "stats":
+                    return BaconMetrics.report();
+                case "p": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    int center = center(u, session);
+                    if (center < 0) {
+                        return Collections.singletonList("Vertex not in graph");
+                    }
+                    if (param[1].equals(session.center)) {
+                        return Collections.singletonList("this actor is the center, try again");
+                    }
+                    return Bacon.describePath(u.trees().get(center), param[1]);
+                }
+                case "u": {
+                    if (param.length == 1) {
+                        break;
+                    }
+                    ShortestPathResult next = u.tree(param[1]);
+                    if (next == null) {
+                        return Collections.singletonList("Vertex not in graph");
+                    }
+                    session.center = param[1];
+                    SeparationStats stats = next.stats();
+                    ConnectedComponents components = u.components();
+                    return Collections.singletonList(param[1] + " is now the center of the acting universe, connected to "
+                            + (components.size(components.component(next.root())) - 1) + "/" + u.graph().numVertices()
+                            + " actors with average separation " + stats.averageSeparation());
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            //didn't input a number, same answer as below
+        }
+        throw new IllegalArgumentException("invalid entry, try again");
+    }
+
+    /**
+     * Id of the session's center in u, or -1 if the graph is empty; only p, s, d and i need it,
+     * so other commands never wait for a tree
+     */
+    private static int center(BaconUniverse u, Session session) {
+        int v = u.graph().id(session.center);
+        if (v < 0) { //the center is gone since a reload, start over from the default one
+            session.center = BaconUniverse.DEFAULT_CENTER;
+            v = u.baconGraph() == null ? -1 : u.baconGraph().root();
+        }
+        return v;
+    }
+
+    /**
+     * Handles /reload: builds a new universe from the files while queries keep using the old one, then swaps it in
+     */
+    private void reload(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        BaconUniverse next;
+        synchronized (reloading) {
+            next = load();
+            universe = next;
+        }
+        respond(exchange, 200, Collections.singletonList("reloaded " + next + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms"));
+    }
+
+    /**
+     * Splits a raw query string into decoded name/value pairs
+     */
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Sends lines as a plain text body, one per line
+     */
+    private static void respond(HttpExchange exchange, int status, List<String> lines) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (String line : lines) {
+            body.append(line).append('\n');
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One loaded version of the Bacon universe, shared by every BaconServer session: the graph, the shortest
+ * path trees computed on it so far and its closeness ranking. The graph is never changed once the universe
+ * is built; a reload builds a new universe and swaps it in whole, so readers take no locks and never see
+ * a half-loaded graph.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class BaconUniverse {
+    public static final String DEFAULT_CENTER = "Kevin Bacon";   //center of every new session
+
+    private final ActorGraph graph;
+    private final long checksum;            //checksum of the input files the graph was built from
+    private final String indexFile;         //where the closeness index is kept between runs
+    private final PathTreeCache trees;      //shortest path trees of recently used centers, shared by all sessions
+    private final ShortestPathResult baconGraph;    //tree of the default center, pinned in trees; null if the graph is empty
+    private final ConnectedComponents components;   //who can reach whom, without a traversal
+    private final ConcurrentLinkedQueue<ShortestPathResult[]> scratch = new ConcurrentLinkedQueue<>(); //pairs for path searches
+    //built the first time a session asks for it; later askers wait on the future, not on a lock
+    private final AtomicReference<CompletableFuture<ClosenessIndex>> closeness = new AtomicReference<>();
+
+    /**
+     * Wraps a fully loaded graph, running BFS from the default center up front
+     */
+    public BaconUniverse(ActorGraph g, long checksum, String indexFile) {
+        graph = g;
+        this.checksum = checksum;
+        this.indexFile = indexFile;
+        trees = new PathTreeCache(g, 16, 256L << 20); //up to 16 trees or 256 MB, as in Bacon
+        int center = g.id(DEFAULT_CENTER);
+        if (g.numVertices() == 0) {
+            baconGraph = null; //e.g. the input files are missing; every query then finds no such actor
+        }
+        else {
+            baconGraph = trees.get(center >= 0 ? center : 0);
+            trees.pin(baconGraph);
+        }
+        components = new ConnectedComponents(g);
+    }
+
+    public ActorGraph graph() {
+        return graph;
+    }
+
+    public long checksum() {
+        return checksum;
+    }
+
+    public ShortestPathResult baconGraph() {
+        return baconGraph;
+    }
+
+    public ConnectedComponents components() {
+        return components;
+    }
+
+    /**
+     * Shortest path tree centered at the actor with the given name, or null if there is no such actor
+     */
+    public ShortestPathResult tree(String center) {
+        int v = graph.id(center);
+        return v < 0 ? null : trees.get(v);
+    }
+
+    /**
+     * Actors connected to the default center ranked by average separation, loaded or built (once) when first asked for;
+     * the session that wins the compare-and-set builds it, and every other one waits for that build to finish
+     */
+    public ClosenessIndex closeness() {
+        while (true) {
+            CompletableFuture<ClosenessIndex> future = closeness.get();
+            if (future != null) {
+                return future.join();
+            }
+            CompletableFuture<ClosenessIndex> mine = new CompletableFuture<>();
+            if (closeness.compareAndSet(null, mine)) {
+                try {
+                    int[] sources = baconGraph == null ? new int[0]
+                            : components.members(components.component(baconGraph.root()));
+                    mine.complete(ClosenessIndex.open(graph, sources, indexFile, checksum));
+                }
+                catch (RuntimeException e) {
+                    closeness.compareAndSet(mine, null); //let a later query try again
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines describing a shortest path between actors a and b, as Bacon's b command prints them;
+     * scratch trees are borrowed from a pool so concurrent searches do not allocate per request
+     */
+    public java.util.List<String> pathBetween(String a, String b) {
+        ShortestPathResult[] pair = scratch.poll();
+        if (pair == null) {
+            pair = new ShortestPathResult[] {new ShortestPathResult(graph), new ShortestPathResult(graph)};
+        }
+        try {
+            return Bacon.describePathBetween(graph, components, a, b, pair[0], pair[1]);
+        }
+        finally {
+            scratch.add(pair);
+        }
+    }
+
+    public PathTreeCache trees() {
+        return trees;
+    }
+
+    @Override
+    public String toString() {
+        return graph + ", " + trees;
+    }
+}
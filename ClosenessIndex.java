@@ -0,0 +1,178 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk index of every connected actor's average separation for Bacon Game, sorted from best
+ * to worst center of the universe; keyed by a checksum of the input files and rebuilt when they change.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class ClosenessIndex {
+    private static final int MAGIC = 0x42434958;    //"BCIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;     //magic, version, checksum, actor count, entry count
+    private static final int ENTRY_BYTES = 16;      //actor id, reached count, average separation
+
+    private final ActorGraph graph;
+    private final ByteBuffer entries;   //mapped index file, or an in-memory copy if it could not be written
+    private final int size;             //number of ranked actors
+
+    private ClosenessIndex(ActorGraph g, ByteBuffer buffer) {
+        graph = g;
+        entries = buffer;
+        size = buffer.getInt(20);
+    }
+
+    /**
+     * Maps the index at indexFile if it was built from input files with the given checksum; returns null if it is missing or stale
+     */
+    public static ClosenessIndex load(ActorGraph g, String indexFile, long checksum) {
+        Path path = Paths.get(indexFile);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                    && buffer.getLong(8) == checksum && buffer.getInt(16) == g.numVertices()
+                    && channel.size() == HEADER_BYTES + (long) buffer.getInt(20) * ENTRY_BYTES) {
+                return new ClosenessIndex(g, buffer);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Cannot read closeness index.\n" + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Loads the index at indexFile, or if it is missing or stale ranks every actor in sources
+     * (normally Kevin Bacon's connected component) and writes a new index first
+     */
+    public static ClosenessIndex open(ActorGraph g, int[] sources, String indexFile, long checksum) {
+        ClosenessIndex index = load(g, indexFile, checksum);
+        if (index != null) {
+            return index;
+        }
+
+        Path path = Paths.get(indexFile);
+        ByteBuffer buffer = build(g, sources, checksum);
+        try {
+            //write next to the old index and swap it in, so a crash never leaves a half-written index
+            Path temp = Paths.get(indexFile + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            buffer.rewind();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            System.err.println("Cannot write closeness index, keeping it in memory.\n" + e.getMessage());
+        }
+        return new ClosenessIndex(g, buffer);
+    }
+
+    /**
+     * Ranks every actor in sources in memory only, without reading or writing an index file;
+     * for a graph changed since it was loaded, whose ranking no later run could use
+     */
+    public static ClosenessIndex rank(ActorGraph g, int[] sources) {
+        return new ClosenessIndex(g, build(g, sources, 0));
+    }
+
+    /**
+     * Computes the average separation of every actor in sources and lays out a sorted index in memory
+     */
+    private static ByteBuffer build(ActorGraph g, int[] sources, long checksum) {
+        AllSourcesSeparation all = new AllSourcesSeparation(g, sources);
+        all.run(ForkJoinPool.commonPool(), (done, total) -> System.err.print("\rranking " + done + "/" + total + " centers"));
+        System.err.println();
+
+        //sort positions by average separation, best center first
+        Integer[] ranks = new Integer[sources.length];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = i;
+        }
+        Arrays.sort(ranks, (a, b) -> Double.compare(all.averageSeparation(a), all.averageSeparation(b)));
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + sources.length * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(checksum).putInt(g.numVertices()).putInt(sources.length);
+        for (int i : ranks) {
+            buffer.putInt(all.source(i)).putInt(all.reachedCount(i)).putDouble(all.averageSeparation(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * CRC32 over the contents of the given files, in order
+     */
+    public static long checksum(String... files) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[1 << 16];
+        for (String file : files) {
+            try (InputStream input = new FileInputStream(file)) {
+                int read;
+                while ((read = input.read(chunk)) > 0) {
+                    crc.update(chunk, 0, read);
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Cannot checksum file.\n" + e.getMessage());
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Number of ranked actors
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Actor id of the center with the given rank, 0 being the lowest average separation
+     */
+    public int actor(int rank) {
+        return entries.getInt(HEADER_BYTES + rank * ENTRY_BYTES);
+    }
+
+    /**
+     * Number of actors connected to the center with the given rank
+     */
+    public int reachedCount(int rank) {
+        return entries.getInt(HEADER_BYTES + rank * ENTRY_BYTES + 4);
+    }
+
+    /**
+     * Average separation of the center with the given rank
+     */
+    public double averageSeparation(int rank) {
+        return entries.getDouble(HEADER_BYTES + rank * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Names of the k best (k positive) or k worst (k negative, worst first) centers
+     */
+    public List<String> list(int k) {
+        List<String> toReturn = new ArrayList<>();
+        for (int i = 0; i < Math.abs(k); i++) {
+            toReturn.add(graph.name(actor(k > 0 ? i : size - 1 - i)));
+        }
+        return toReturn;
+    }
+}
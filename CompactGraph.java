@@ -0,0 +1,602 @@
+import java.util.*;
+
+/**
+ * Actor graph for Bacon Game, stored in compressed-sparse-row form;
+ * actor names and movie titles are interned to int IDs in SymbolTables, neighbors live in int[] offset/target arrays,
+ * and each edge label is a run of int movie IDs in a side array.
+ * Built once after loading, it answers the same Graph queries as AdjacencyMapGraph; whole movies can be
+ * added or removed afterwards, which rewrites only their cast members' rows at the end of the arrays.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class CompactGraph implements ActorGraph {
+    final SymbolTable names;                //actor names by actor id
+    final SymbolTable titles;               //movie names by movie id (removed movies keep their id)
+    int[] offsets;                          //neighbors of actor v are targets[offsets[v]] .. targets[ends[v]-1]
+    private int[] ends;
+    int[] targets;                          //neighbor actor ids, sorted within each actor
+    int[] labelOffsets;                     //movies on edge e are labelMovies[labelOffsets[e]] .. labelMovies[labelOffsets[e+1]-1]
+    int[] labelMovies;                      //movie ids, sorted within each edge
+    private int actors, movies;             //number of actor and movie ids in use
+    private int edgeSlots, labelSlots;      //used length of targets and labelMovies, counting rows left behind by updates
+    private int liveEdges;                  //edges in current rows
+    private int[][] casts;                  //Index: movie id, Value: cast as sorted actor ids, null once removed; built on the first update
+
+    /**
+     * Builds the graph from the actor names and a Map with Key: Movie Name and Value: Set of Actors in that Movie
+     */
+    public CompactGraph(Collection<String> actors, Map<String, Set<String>> moviesActors) {
+        //intern actor names and movie titles to ids
+        names = new SymbolTable(actors.size());
+        for (String actor : actors) {
+            if (actor != null) {
+                names.intern(actor);
+            }
+        }
+        String[] movieList = moviesActors.keySet().toArray(new String[0]);
+        titles = new SymbolTable(movieList.length);
+        for (String title : movieList) {
+            titles.intern(title);
+        }
+
+        //turn every cast into an array of actor ids
+        int n = names.size();
+        int[][] casts = new int[movieList.length][];
+        int[] counts = new int[n + 1];  //number of (neighbor, movie) pairs per actor, shifted by one
+        for (int m = 0; m < movieList.length; m++) {
+            Set<String> cast = moviesActors.get(movieList[m]);
+            int[] c = new int[cast.size()];
+            int size = 0;
+            for (String actor : cast) {
+                int id = names.id(actor);
+                if (id >= 0) {
+                    c[size++] = id;
+                }
+            }
+            casts[m] = Arrays.copyOf(c, size);
+            for (int i = 0; i < size; i++) {
+                counts[c[i] + 1] += size - 1;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            counts[v + 1] += counts[v];
+        }
+
+        //bucket every (neighbor, movie) pair under its actor, packed as neighbor << 32 | movie
+        long[] pairs = new long[counts[n]];
+        int[] fill = Arrays.copyOf(counts, n);
+        for (int m = 0; m < casts.length; m++) {
+            int[] c = casts[m];
+            for (int i = 0; i < c.length; i++) {
+                for (int j = 0; j < c.length; j++) {
+                    if (i != j) {
+                        pairs[fill[c[i]]++] = ((long) c[j] << 32) | m;
+                    }
+                }
+            }
+        }
+        casts = null;
+
+        //sort each actor's pairs so that repeat neighbors are adjacent, then collapse them into single edges
+        int edges = 0;
+        for (int v = 0; v < n; v++) {
+            Arrays.sort(pairs, counts[v], counts[v + 1]);
+            for (int i = counts[v]; i < counts[v + 1]; i++) {
+                if (i == counts[v] || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) {
+                    edges++;
+                }
+            }
+        }
+        offsets = new int[n + 1];
+        targets = new int[edges];
+        labelOffsets = new int[edges + 1];
+        labelMovies = new int[pairs.length];
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v] = e;
+            for (int i = counts[v]; i < counts[v + 1]; i++) {
+                if (i == counts[v] || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) {
+                    targets[e] = (int) (pairs[i] >>> 32);
+                    labelOffsets[e] = i;
+                    e++;
+                }
+                labelMovies[i] = (int) pairs[i];
+            }
+        }
+        offsets[n] = e;
+        labelOffsets[e] = pairs.length;
+        ends = Arrays.copyOfRange(offsets, 1, n + 1);
+        count();
+    }
+
+    /**
+     * Wraps arrays that are already in compressed-sparse-row form, as read back by GraphSnapshot
+     */
+    CompactGraph(SymbolTable names, SymbolTable titles, int[] offsets, int[] targets, int[] labelOffsets, int[] labelMovies) {
+        this.names = names;
+        this.titles = titles;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.labelOffsets = labelOffsets;
+        this.labelMovies = labelMovies;
+        ends = Arrays.copyOfRange(offsets, 1, names.size() + 1);
+        count();
+    }
+
+    /**
+     * Sets the counts from freshly laid out, exactly sized arrays
+     */
+    private void count() {
+        actors = names.size();
+        movies = titles.size();
+        edgeSlots = targets.length;
+        labelSlots = labelMovies.length;
+        liveEdges = targets.length;
+    }
+
+    @Override
+    public int id(String name) {
+        return names.id(name);
+    }
+
+    @Override
+    public String name(int v) {
+        return names.get(v);
+    }
+
+    /**
+     * Returns the name of the movie with the given id
+     */
+    public String title(int m) {
+        return titles.get(m);
+    }
+
+    /**
+     * Returns the number of movie ids handed out, including those of removed movies
+     */
+    public int numMovies() {
+        return movies;
+    }
+
+    /**
+     * Index of actor v's first edge; its edges run from firstEdge(v) up to endEdge(v)
+     */
+    public int firstEdge(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Index just past actor v's last edge
+     */
+    public int endEdge(int v) {
+        return ends[v];
+    }
+
+    /**
+     * Actor id at the far end of edge e
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /**
+     * Returns the edge index from actor u to actor v, or -1 if they never appeared together
+     */
+    public int edge(int u, int v) {
+        int e = Arrays.binarySearch(targets, offsets[u], ends[u], v);
+        return e < 0 ? -1 : e;
+    }
+
+    /**
+     * Returns the movie names on edge e as a read-only Set
+     */
+    public Set<String> label(int e) {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    int i = labelOffsets[e];
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < labelOffsets[e + 1];
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return titles.get(labelMovies[i++]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return labelOffsets[e + 1] - labelOffsets[e];
+            }
+        };
+    }
+
+    @Override
+    public Set<String> stepLabel(int u, int v, int via) {
+        //BFS followed edge via from u to v, unless an update has moved u's row since
+        int e = via >= offsets[u] && via < ends[u] && targets[via] == v ? via : edge(u, v);
+        return e < 0 ? null : label(e);
+    }
+
+    /**
+     * Returns actor v's neighbors as names, without copying them
+     */
+    private Iterable<String> neighbors(int v) {
+        return () -> new Iterator<String>() {
+            int e = offsets[v];
+
+            @Override
+            public boolean hasNext() {
+                return e < ends[v];
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return names.get(targets[e++]);
+            }
+        };
+    }
+
+    @Override
+    public int numVertices() {
+        return actors;
+    }
+
+    @Override
+    public int numEdges() {
+        return liveEdges; //each undirected edge counts once per direction, as in AdjacencyMapGraph
+    }
+
+    @Override
+    public Iterable<String> vertices() {
+        return names.asList(); //names are decoded as they are iterated
+    }
+
+    @Override
+    public boolean hasVertex(String v) {
+        return names.id(v) >= 0;
+    }
+
+    @Override
+    public boolean hasEdge(String u, String v) {
+        int a = names.id(u), b = names.id(v);
+        return a >= 0 && b >= 0 && edge(a, b) >= 0;
+    }
+
+    @Override
+    public Set<String> getLabel(String u, String v) {
+        int a = names.id(u), b = names.id(v);
+        if (a < 0 || b < 0) {
+            return null;
+        }
+        int e = edge(a, b);
+        return e < 0 ? null : label(e);
+    }
+
+    @Override
+    public int outDegree(String v) {
+        int id = names.id(v);
+        return ends[id] - offsets[id];
+    }
+
+    @Override
+    public int inDegree(String v) {
+        return outDegree(v); //every edge is undirected
+    }
+
+    @Override
+    public Iterable<String> outNeighbors(String v) {
+        return neighbors(names.id(v));
+    }
+
+    @Override
+    public Iterable<String> inNeighbors(String v) {
+        return neighbors(names.id(v)); //every edge is undirected
+    }
+
+    /**
+     * Adds a movie with the given cast, making new actors for names not in the graph yet; every pair of cast
+     * members gets the movie in its label. Returns the cast as sorted actor ids, or null if the title is already in the graph.
+     * A movie that was removed before gets its old id back.
+     */
+    public int[] addMovie(String title, Collection<String> cast) {
+        indexMovies();
+        int m = titles.id(title);
+        if (m >= 0 && casts[m] != null) {
+            return null;
+        }
+        if (m < 0) {
+            m = titles.intern(title);
+            movies++;
+            if (m == casts.length) {
+                casts = Arrays.copyOf(casts, Math.max(16, m * 2));
+            }
+        }
+
+        int[] c = new int[cast.size()];
+        int size = 0;
+        for (String actor : cast) {
+            int id = names.id(actor);
+            c[size++] = id < 0 ? addActor(actor) : id;
+        }
+        Arrays.sort(c, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || c[i] != c[distinct - 1]) {
+                c[distinct++] = c[i];
+            }
+        }
+        c = Arrays.copyOf(c, distinct);
+        casts[m] = c;
+
+        for (int u : c) {
+            rewriteRow(u, c, m, true);
+        }
+        compactIfSparse();
+        return c;
+    }
+
+    /**
+     * Removes the movie with the given title from every label, dropping edges left with no movies;
+     * its cast stay in the graph. Returns the cast as sorted actor ids, or null if there is no such movie.
+     */
+    public int[] removeMovie(String title) {
+        indexMovies();
+        int m = titles.id(title);
+        if (m < 0 || casts[m] == null) {
+            return null;
+        }
+        int[] c = casts[m];
+        casts[m] = null;
+        for (int u : c) {
+            rewriteRow(u, c, m, false);
+        }
+        compactIfSparse();
+        return c;
+    }
+
+    /**
+     * Appends a new actor with no edges and returns its id
+     */
+    private int addActor(String name) {
+        int v = names.intern(name);
+        actors++;
+        if (v + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, v * 2 + 2);
+            ends = Arrays.copyOf(ends, v * 2 + 2);
+        }
+        offsets[v] = edgeSlots;
+        ends[v] = edgeSlots;
+        return v;
+    }
+
+    /**
+     * Writes a new row for actor u at the end of the arrays: its old row merged with the other members of cast,
+     * with movie m added to (or removed from) their labels; edges whose label ends up empty are left out
+     */
+    private void rewriteRow(int u, int[] cast, int m, boolean add) {
+        int labels = labelOffsets[ends[u]] - labelOffsets[offsets[u]];
+        ensureRoom(ends[u] - offsets[u] + cast.length, labels + cast.length);
+
+        int start = edgeSlots;
+        int i = offsets[u], j = 0;
+        while (i < ends[u] || j < cast.length) {
+            if (j < cast.length && cast[j] == u) {
+                j++;
+            }
+            else if (j == cast.length || (i < ends[u] && targets[i] < cast[j])) {
+                //co-star outside the movie: copy the edge as it is
+                targets[edgeSlots] = targets[i];
+                labelOffsets[edgeSlots] = labelSlots;
+                for (int k = labelOffsets[i]; k < labelOffsets[i + 1]; k++) {
+                    labelMovies[labelSlots++] = labelMovies[k];
+                }
+                labelOffsets[++edgeSlots] = labelSlots;
+                i++;
+            }
+            else if (i == ends[u] || cast[j] < targets[i]) {
+                //first movie together: a new edge labelled with just this movie
+                if (add) {
+                    targets[edgeSlots] = cast[j];
+                    labelOffsets[edgeSlots] = labelSlots;
+                    labelMovies[labelSlots++] = m;
+                    labelOffsets[++edgeSlots] = labelSlots;
+                }
+                j++;
+            }
+            else {
+                //co-star in the movie: copy the label with m added in order, or dropped
+                int first = labelSlots;
+                boolean placed = !add;
+                for (int k = labelOffsets[i]; k < labelOffsets[i + 1]; k++) {
+                    if (!placed && labelMovies[k] > m) {
+                        labelMovies[labelSlots++] = m;
+                        placed = true;
+                    }
+                    if (labelMovies[k] != m) {
+                        labelMovies[labelSlots++] = labelMovies[k];
+                    }
+                }
+                if (!placed) {
+                    labelMovies[labelSlots++] = m;
+                }
+                if (labelSlots > first) {
+                    targets[edgeSlots] = targets[i];
+                    labelOffsets[edgeSlots] = first;
+                    labelOffsets[++edgeSlots] = labelSlots;
+                }
+                i++;
+                j++;
+            }
+        }
+        liveEdges += edgeSlots - start - (ends[u] - offsets[u]);
+        offsets[u] = start;
+        ends[u] = edgeSlots;
+    }
+
+    /**
+     * Grows targets and the label arrays so that the given numbers of edges and label movie ids fit after the used part
+     */
+    private void ensureRoom(int edges, int labels) {
+        if (edgeSlots + edges > targets.length) {
+            int size = Math.max(edgeSlots + edges, targets.length * 3 / 2);
+            targets = Arrays.copyOf(targets, size);
+            labelOffsets = Arrays.copyOf(labelOffsets, size + 1);
+        }
+        if (labelSlots + labels > labelMovies.length) {
+            labelMovies = Arrays.copyOf(labelMovies, Math.max(labelSlots + labels, labelMovies.length * 3 / 2));
+        }
+    }
+
+    /**
+     * Compacts once the rows left behind by updates take more room than the current ones
+     */
+    private void compactIfSparse() {
+        if (edgeSlots - liveEdges > liveEdges) {
+            compact();
+        }
+    }
+
+    /**
+     * Lays the current rows out contiguously in exactly sized arrays, dropping rows left behind by updates;
+     * edge indexes change, so paths found before still get their labels through stepLabel's lookup
+     */
+    void compact() {
+        if (isCompact()) {
+            return;
+        }
+        int labels = 0;
+        for (int v = 0; v < actors; v++) {
+            labels += labelOffsets[ends[v]] - labelOffsets[offsets[v]];
+        }
+        int[] newOffsets = new int[actors + 1];
+        int[] newTargets = new int[liveEdges];
+        int[] newLabelOffsets = new int[liveEdges + 1];
+        int[] newLabelMovies = new int[labels];
+        int e = 0, k = 0;
+        for (int v = 0; v < actors; v++) {
+            newOffsets[v] = e;
+            for (int i = offsets[v]; i < ends[v]; i++) {
+                newTargets[e] = targets[i];
+                newLabelOffsets[e++] = k;
+                for (int j = labelOffsets[i]; j < labelOffsets[i + 1]; j++) {
+                    newLabelMovies[k++] = labelMovies[j];
+                }
+            }
+        }
+        newOffsets[actors] = e;
+        newLabelOffsets[e] = k;
+
+        names.trim();
+        titles.trim();
+        offsets = newOffsets;
+        ends = Arrays.copyOfRange(newOffsets, 1, actors + 1);
+        targets = newTargets;
+        labelOffsets = newLabelOffsets;
+        labelMovies = newLabelMovies;
+        edgeSlots = e;
+        labelSlots = k;
+    }
+
+    /**
+     * Whether the rows already sit in id order with nothing left behind and the arrays are exactly sized
+     */
+    private boolean isCompact() {
+        if (offsets.length != actors + 1 || targets.length != edgeSlots
+                || labelOffsets.length != edgeSlots + 1 || labelMovies.length != labelSlots
+                || edgeSlots != liveEdges || offsets[0] != 0) {
+            return false;
+        }
+        for (int v = 0; v < actors; v++) {
+            if (ends[v] != offsets[v + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds each movie's cast from the labels, the first time a movie is added or removed
+     */
+    private void indexMovies() {
+        if (casts != null) {
+            return;
+        }
+
+        //an actor shows up in a movie's labels once per co-star, so count it only when it differs from the last one
+        int[] sizes = new int[movies];
+        int[] last = new int[movies];
+        Arrays.fill(last, -1);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < actors; v++) {
+                for (int k = labelOffsets[offsets[v]]; k < labelOffsets[ends[v]]; k++) {
+                    int m = labelMovies[k];
+                    if (last[m] != v) {
+                        last[m] = v;
+                        if (pass == 0) {
+                            sizes[m]++;
+                        }
+                        else {
+                            casts[m][sizes[m]++] = v;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                casts = new int[movies][];
+                for (int m = 0; m < movies; m++) {
+                    casts[m] = new int[sizes[m]];
+                }
+                Arrays.fill(sizes, 0);
+                Arrays.fill(last, -1);
+            }
+        }
+    }
+
+    @Override
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("CompactGraph only changes a whole movie at a time");
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGraph: " + numVertices() + " actors, " + numEdges() / 2 + " undirected edges, " + numMovies() + " movies";
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.*;
+
+/**
+ * Connected components of an ActorGraph for Bacon Game, found once with union-find over every edge (or every
+ * cast, for a MovieGraph) instead of by BFS. Afterwards whether two actors are connected, how many actors a
+ * center can reach and who it cannot reach are read off arrays without any traversal.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class ConnectedComponents {
+    private final ActorGraph graph;
+    private final int[] label;      //Index: actor id, Value: component id; components are numbered by their lowest actor id
+    private final int[] starts;     //Index: component id, Value: index in members of its first actor, plus one at the end
+    private final int[] members;    //actor ids grouped by component, increasing within each
+    private final int largest;      //component with the most actors
+
+    public ConnectedComponents(ActorGraph g) {
+        graph = g;
+        int n = g.numVertices();
+        int[] parent = new int[n];
+        int[] size = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+
+        //union the ends of every edge, once per undirected edge
+        if (g instanceof MovieGraph) {
+            MovieGraph mg = (MovieGraph) g;
+            for (int m = 0; m < mg.numMovies(); m++) { //a cast is connected through its first member
+                for (int j = mg.firstCastMember(m) + 1; j < mg.firstCastMember(m + 1); j++) {
+                    union(parent, size, mg.castMember(mg.firstCastMember(m)), mg.castMember(j));
+                }
+            }
+        }
+        else if (g instanceof MappedGraph) {
+            MappedGraph mg = (MappedGraph) g;
+            for (int u = 0; u < n; u++) { //in id order, which is file order
+                long end = mg.endEdge(u);
+                for (long e = mg.firstEdge(u); e < end; e++) {
+                    int v = mg.target(e);
+                    if (v > u) {
+                        union(parent, size, u, v);
+                    }
+                }
+            }
+        }
+        else {
+            CompactGraph cg = (CompactGraph) g;
+            for (int u = 0; u < n; u++) {
+                int end = cg.endEdge(u);
+                for (int e = cg.firstEdge(u); e < end; e++) {
+                    int v = cg.target(e);
+                    if (v > u) {
+                        union(parent, size, u, v);
+                    }
+                }
+            }
+        }
+
+        //number the components in order of their lowest actor; a root's label is set the first time it is found
+        label = new int[n];
+        Arrays.fill(label, -1);
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            if (label[root] < 0) {
+                label[root] = count++;
+            }
+            label[v] = label[root];
+        }
+
+        //group actors by component with a counting sort, which keeps them in id order within each
+        starts = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            starts[label[v] + 1]++;
+        }
+        int big = 0;
+        for (int c = 0; c < count; c++) {
+            if (starts[c + 1] > starts[big + 1]) {
+                big = c;
+            }
+        }
+        largest = big;
+        for (int c = 0; c < count; c++) {
+            starts[c + 1] += starts[c];
+        }
+        members = new int[n];
+        int[] fill = Arrays.copyOf(starts, count);
+        for (int v = 0; v < n; v++) {
+            members[fill[label[v]]++] = v;
+        }
+    }
+
+    /**
+     * Root of v's set, halving the path on the way up
+     */
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Merges the sets of u and v, hanging the smaller under the larger
+     */
+    private static void union(int[] parent, int[] size, int u, int v) {
+        int a = find(parent, u), b = find(parent, v);
+        if (a == b) {
+            return;
+        }
+        if (size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+    }
+
+    public ActorGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Component id of actor v
+     */
+    public int component(int v) {
+        return label[v];
+    }
+
+    /**
+     * Whether actors u and v have a path between them
+     */
+    public boolean connected(int u, int v) {
+        return label[u] == label[v];
+    }
+
+    public int numComponents() {
+        return starts.length - 1;
+    }
+
+    /**
+     * Number of actors in component c
+     */
+    public int size(int c) {
+        return starts[c + 1] - starts[c];
+    }
+
+    /**
+     * Component with the most actors
+     */
+    public int largest() {
+        return largest;
+    }
+
+    /**
+     * Actor ids in component c, in increasing order
+     */
+    public int[] members(int c) {
+        return Arrays.copyOfRange(members, starts[c], starts[c + 1]);
+    }
+
+    /**
+     * Number of actors that actor v cannot reach
+     */
+    public int numUnreachable(int v) {
+        return members.length - size(label[v]);
+    }
+
+    /**
+     * Names of the actors that actor v cannot reach, component by component
+     */
+    public List<String> unreachable(int v) {
+        List<String> names = new ArrayList<>(numUnreachable(v));
+        PrimitiveIterator.OfInt ids = unreachableIds(v);
+        while (ids.hasNext()) {
+            names.add(graph.name(ids.nextInt()));
+        }
+        return names;
+    }
+
+    /**
+     * Ids of the actors that actor v cannot reach, in the same order as unreachable(v), read straight off
+     * the members array so that callers can stream them without building a list
+     */
+    public PrimitiveIterator.OfInt unreachableIds(int v) {
+        int c = label[v];
+        return new PrimitiveIterator.OfInt() {
+            private int i = starts[c] == 0 ? starts[c + 1] : 0; //skip v's own component, before or after the others
+
+            @Override
+            public boolean hasNext() {
+                return i < members.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i >= members.length) {
+                    throw new NoSuchElementException();
+                }
+                int id = members[i++];
+                if (i == starts[c]) {
+                    i = starts[c + 1];
+                }
+                return id;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectedComponents: " + numComponents() + " components, largest has "
+                + (members.length == 0 ? 0 : size(largest)) + " actors";
+    }
+}
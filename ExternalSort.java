@@ -0,0 +1,214 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts more longs than fit in the heap, for building a MappedGraph: values are collected in a fixed buffer,
+ * each full buffer is sorted and written to a temporary run file, and the runs are merged back in one pass.
+ * Duplicates are dropped, so packed pairs like actor << 32 | movie come out sorted and distinct.
+ *
+ * Use: add every value, then read them back in order with hasNext() / next(), then close() to delete the runs.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class ExternalSort implements Closeable {
+    private static final int READ_BUFFER_BYTES = 1 << 14;  //per run while merging, so many runs fit at once
+
+    /**
+     * One sorted run file being merged, with its smallest unread value
+     */
+    private static class Run {
+        final DataInputStream in;
+        long remaining;     //values not yet read from the file
+        long head;          //smallest value not yet merged
+
+        Run(Path file, long count) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_BYTES));
+            remaining = count;
+        }
+
+        /**
+         * Reads the next value into head; false once the run is used up
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            head = in.readLong();
+            return true;
+        }
+    }
+
+    private final Path directory;           //where the runs go
+    private long[] buffer;                  //values not yet written to a run; dropped once merging starts
+    private int size;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Long> runSizes = new ArrayList<>();
+    private long count;                     //values added, duplicates included
+
+    private PriorityQueue<Run> merge;       //runs by head, once sorting is done
+    private int next;                       //next index of buffer to return when nothing was spilled
+    private boolean started, any;           //whether reading has begun, and whether a value was returned yet
+    private long last;                      //last value returned, to skip duplicates
+    private boolean peeked;                 //whether pending holds the next distinct value
+    private long pending;
+
+    /**
+     * Sorts with a buffer of bufferSize longs (at least 1024), writing runs to files in directory
+     */
+    public ExternalSort(Path directory, int bufferSize) {
+        this.directory = directory;
+        buffer = new long[Math.max(1024, bufferSize)];
+    }
+
+    public void add(long value) throws IOException {
+        if (started) {
+            throw new IllegalStateException("ExternalSort is already being read");
+        }
+        if (size == buffer.length) {
+            spill();
+        }
+        buffer[size++] = value;
+        count++;
+    }
+
+    /**
+     * Number of values added, duplicates included
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Number of runs written to disk so far
+     */
+    public int numRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Sorts the buffer, drops duplicates and writes it out as a new run
+     */
+    private void spill() throws IOException {
+        int distinct = sortDistinct();
+        Path file = Files.createTempFile(directory, "bacon-sort", ".run");
+        file.toFile().deleteOnExit(); //in case close() is never reached
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < distinct; i++) {
+                out.writeLong(buffer[i]);
+            }
+        }
+        runs.add(file);
+        runSizes.add((long) distinct);
+        size = 0;
+    }
+
+    /**
+     * Sorts buffer[0 .. size - 1] and moves the distinct values to its front; returns how many there are
+     */
+    private int sortDistinct() {
+        Arrays.sort(buffer, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || buffer[i] != buffer[distinct - 1]) {
+                buffer[distinct++] = buffer[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Ends adding: sorts in memory if nothing was spilled, otherwise spills the rest and opens every run for merging
+     */
+    private void start() throws IOException {
+        started = true;
+        if (runs.isEmpty()) {
+            size = sortDistinct();
+            return;
+        }
+        if (size > 0) {
+            spill();
+        }
+        buffer = null; //the runs hold everything now
+        merge = new PriorityQueue<>(runs.size(), Comparator.comparingLong((Run r) -> r.head));
+        for (int i = 0; i < runs.size(); i++) {
+            Run run = new Run(runs.get(i), runSizes.get(i));
+            if (run.advance()) {
+                merge.add(run);
+            }
+            else {
+                run.in.close();
+            }
+        }
+    }
+
+    /**
+     * Smallest value not yet returned, or false if there is none
+     */
+    public boolean hasNext() throws IOException {
+        if (!started) {
+            start();
+        }
+        while (!peeked) {
+            long value;
+            if (merge == null) {
+                if (next == size) {
+                    return false;
+                }
+                value = buffer[next++];
+            }
+            else {
+                Run run = merge.poll();
+                if (run == null) {
+                    return false;
+                }
+                value = run.head;
+                if (run.advance()) {
+                    merge.add(run);
+                }
+                else {
+                    run.in.close();
+                }
+            }
+            if (!any || value != last) { //runs are distinct on their own, but may share values with each other
+                pending = value;
+                peeked = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next value in increasing order, skipping duplicates
+     */
+    public long next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        peeked = false;
+        any = true;
+        last = pending;
+        return pending;
+    }
+
+    /**
+     * Deletes the run files
+     */
+    @Override
+    public void close() throws IOException {
+        if (merge != null) {
+            for (Run run : merge) {
+                run.in.close();
+            }
+            merge = null;
+        }
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer = null;
+    }
+}
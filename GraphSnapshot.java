@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Versioned binary snapshot of a CompactGraph for Bacon Game; the CSR arrays and string tables are
+ * written as-is, so loading is a memory-mapped bulk copy instead of re-parsing the text files.
+ *
+ * Layout (big-endian): magic, version, input checksum, actors, movies, edges, label entries,
+ * then offsets, targets, labelOffsets, labelMovies, name ends, title ends, name bytes, title bytes.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class GraphSnapshot {
+    private static final int MAGIC = 0x42475348;    //"BGSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CHUNK_BYTES = 1 << 16; //write buffer size
+
+    private final CompactGraph graph;
+    private final long checksum;    //checksum of the input files the graph was built from
+
+    private GraphSnapshot(CompactGraph graph, long checksum) {
+        this.graph = graph;
+        this.checksum = checksum;
+    }
+
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    public long checksum() {
+        return checksum;
+    }
+
+    /**
+     * Writes g to file, recording the checksum of the input files it was built from
+     */
+    public static void write(CompactGraph g, long checksum, String file) throws IOException {
+        g.compact(); //rows moved by movie updates are laid back out in order, so the arrays can be written as they are
+        SymbolTable names = g.names, titles = g.titles;
+        names.trim(); //the symbol tables are already in the snapshot's layout once their spare room is dropped
+        titles.trim();
+        Path temp = Paths.get(file + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(checksum).putInt(names.size()).putInt(titles.size())
+                    .putInt(g.targets.length).putInt(g.labelMovies.length).flip();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+            writeInts(channel, chunk, g.offsets);
+            writeInts(channel, chunk, g.targets);
+            writeInts(channel, chunk, g.labelOffsets);
+            writeInts(channel, chunk, g.labelMovies);
+            writeInts(channel, chunk, names.ends);
+            writeInts(channel, chunk, titles.ends);
+            writeFully(channel, ByteBuffer.wrap(names.bytes));
+            writeFully(channel, ByteBuffer.wrap(titles.bytes));
+        }
+        Files.move(temp, Paths.get(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps file and copies its sections straight into a CompactGraph; returns null if it is not a snapshot of this version
+     */
+    public static GraphSnapshot read(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            long checksum = header.getLong();
+            int n = header.getInt(), movies = header.getInt(), edges = header.getInt(), labels = header.getInt();
+
+            long position = HEADER_BYTES;
+            int[] offsets = readInts(channel, position, n + 1);
+            position += 4L * (n + 1);
+            int[] targets = readInts(channel, position, edges);
+            position += 4L * edges;
+            int[] labelOffsets = readInts(channel, position, edges + 1);
+            position += 4L * (edges + 1);
+            int[] labelMovies = readInts(channel, position, labels);
+            position += 4L * labels;
+            int[] nameEnds = readInts(channel, position, n);
+            position += 4L * n;
+            int[] titleEnds = readInts(channel, position, movies);
+            position += 4L * movies;
+            SymbolTable names = readStrings(channel, position, nameEnds);
+            position += n == 0 ? 0 : nameEnds[n - 1];
+            SymbolTable titles = readStrings(channel, position, titleEnds);
+
+            return new GraphSnapshot(new CompactGraph(names, titles, offsets, targets, labelOffsets, labelMovies), checksum);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer chunk, int[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            chunk.clear();
+            int count = Math.min(values.length - i, CHUNK_BYTES / 4);
+            chunk.asIntBuffer().put(values, i, count);
+            chunk.limit(count * 4);
+            writeFully(channel, chunk);
+            i += count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        IntBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).asIntBuffer();
+        mapped.get(values);
+        return values;
+    }
+
+    /**
+     * Copies a string table section into a SymbolTable, keeping it as UTF-8
+     */
+    static SymbolTable readStrings(FileChannel channel, long position, int[] ends) throws IOException {
+        byte[] bytes = new byte[ends.length == 0 ? 0 : ends[ends.length - 1]];
+        channel.map(FileChannel.MapMode.READ_ONLY, position, bytes.length).get(bytes);
+        return new SymbolTable(bytes, ends);
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram for Bacon Game, laid out like HdrHistogram: values below 32 ns get a bucket each,
+ * and every power of two above that is split into 16 equal buckets, so any recorded value is reported within
+ * about 6% in a fixed 960 counters however long the run.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;                  //log2 of the buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();      //sum of all values, for the mean
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds one value in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(v));
+        count.incrementAndGet();
+        total.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Bucket of value v: v itself below 2 * SUB_COUNT, otherwise the power of two it falls in and the top SUB_BITS
+     * bits below its highest bit
+     */
+    private static int bucket(long v) {
+        if (v < 2 * SUB_COUNT) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (v >>> shift);
+    }
+
+    /**
+     * Largest value that falls in the given bucket
+     */
+    private static long highest(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long top = bucket - shift * SUB_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Smallest recorded value (to bucket precision) that at least the given fraction of values are at or under
+     */
+    public long percentile(double fraction) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return max.get(); //records landed while counting
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls, mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms", count(),
+                mean() / 1e6, percentile(0.5) / 1e6, percentile(0.9) / 1e6, percentile(0.99) / 1e6, max() / 1e6);
+    }
+}
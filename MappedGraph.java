@@ -0,0 +1,493 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Read-only actor graph for Bacon Game whose adjacency lives in a memory-mapped file instead of the Java heap,
+ * for datasets whose co-star pairs do not fit in memory. The file is built straight from the txt files by
+ * external sorts: credits are sorted by actor (each actor's movies, which give the edge labels) and by movie,
+ * and every pair in each cast is sorted again into compressed-sparse-row rows of co-stars. Only actor names,
+ * movie titles and the per-actor arrays of a search stay on the heap; the operating system pages the rest.
+ *
+ * Layout (big-endian): magic, version, input checksum, actors, movies, edges, credits, then actorMovies (int per
+ * credit), actorOffsets (long per actor + 1), targets (int per edge), offsets (long per actor + 1), name ends,
+ * title ends, name bytes, title bytes.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class MappedGraph implements ActorGraph {
+    private static final int MAGIC = 0x42474d50;    //"BGMP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    /**
+     * A section of the file mapped as consecutive buffers, since one mapping cannot pass 2 GB
+     */
+    private static class Section {
+        private static final int SEGMENT_SHIFT = 30;   //1 GB per mapping, a multiple of every value size
+        private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+        private final MappedByteBuffer[] segments;
+
+        Section(FileChannel channel, long position, long bytes) throws IOException {
+            segments = new MappedByteBuffer[(int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long from = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + from, Math.min(bytes - from, 1L << SEGMENT_SHIFT));
+            }
+        }
+
+        int getInt(long i) {
+            long b = i << 2;
+            return segments[(int) (b >>> SEGMENT_SHIFT)].getInt((int) (b & SEGMENT_MASK));
+        }
+
+        long getLong(long i) {
+            long b = i << 3;
+            return segments[(int) (b >>> SEGMENT_SHIFT)].getLong((int) (b & SEGMENT_MASK));
+        }
+    }
+
+    /**
+     * Called for each "first|second" row of a txt file
+     */
+    private interface RowHandler {
+        void row(String first, String second) throws IOException;
+    }
+
+    private final SymbolTable names;        //actor names by actor id
+    private final SymbolTable titles;       //movie names by movie id
+    private final long checksum;            //checksum of the input files the graph was built from
+    private final Section actorOffsets;     //movies of actor v are actorMovies[actorOffsets[v]] .. actorMovies[actorOffsets[v+1]-1]
+    private final Section actorMovies;      //movie ids, sorted within each actor
+    private final Section offsets;          //neighbors of actor v are targets[offsets[v]] .. targets[offsets[v+1]-1]
+    private final Section targets;          //neighbor actor ids, sorted within each actor
+    private final long edges;               //each undirected edge counts once per direction
+    private final long mappedBytes;
+
+    private MappedGraph(SymbolTable names, SymbolTable titles, long checksum, Section actorOffsets, Section actorMovies,
+                        Section offsets, Section targets, long edges, long mappedBytes) {
+        this.names = names;
+        this.titles = titles;
+        this.checksum = checksum;
+        this.actorOffsets = actorOffsets;
+        this.actorMovies = actorMovies;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edges = edges;
+        this.mappedBytes = mappedBytes;
+    }
+
+    /**
+     * Builds the mapped graph file from the txt files; the three sort buffers take a sixteenth of the heap each
+     */
+    public static void build(String actorFile, String movieFile, String movieactorFile, long checksum, String file) throws IOException {
+        long start = System.nanoTime();
+        Path target = Paths.get(file).toAbsolutePath();
+        Path directory = target.getParent();
+        int bufferSize = (int) Math.min(1 << 27, Runtime.getRuntime().maxMemory() / 16 / 8); //a sixteenth of the heap per sort
+
+        //Index: id in the txt file (interned), Value: actor name or movie title id
+        SymbolTable names = new SymbolTable(1 << 10), titles = new SymbolTable(1 << 10);
+        SymbolTable actorIds = new SymbolTable(1 << 10), movieIds = new SymbolTable(1 << 10);
+        int[][] actorOf = {new int[1 << 10]}, movieOf = {new int[1 << 10]};
+        readRows(actorFile, (id, name) -> actorOf[0] = put(actorOf[0], actorIds.intern(id), names.intern(name)));
+        readRows(movieFile, (id, title) -> movieOf[0] = put(movieOf[0], movieIds.intern(id), titles.intern(title)));
+        int n = names.size(), movies = titles.size();
+
+        Path temp = Paths.get(file + ".tmp");
+        long credits = 0, edgeCount = 0;
+        //each sort sits in the narrowest block that reads it, so its run files are deleted as soon as it is used up
+        try (ExternalSort pairs = new ExternalSort(directory, bufferSize);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            long[] rowStarts = new long[n + 1];
+            try (ExternalSort byMovie = new ExternalSort(directory, bufferSize)) {
+                try (ExternalSort byActor = new ExternalSort(directory, bufferSize)) {
+                    //every credit once by actor and once by movie
+                    long[] unknown = {0};
+                    readRows(movieactorFile, (movie, actor) -> {
+                        int m = movieIds.id(movie), a = actorIds.id(actor);
+                        if (m < 0 || a < 0) {
+                            unknown[0]++;
+                            return;
+                        }
+                        m = movieOf[0][m];
+                        a = actorOf[0][a];
+                        byActor.add((long) a << 32 | m);
+                        byMovie.add((long) m << 32 | a);
+                    });
+                    if (unknown[0] > 0) {
+                        System.err.println(movieactorFile + ": " + unknown[0] + " rows refer to an unknown movie or actor, skipped");
+                    }
+                    out.write(new byte[HEADER_BYTES]); //filled in once the counts are known
+
+                    //each actor's movies, in actor order
+                    while (byActor.hasNext()) {
+                        long credit = byActor.next();
+                        out.writeInt((int) credit);
+                        rowStarts[(int) (credit >>> 32) + 1]++;
+                        credits++;
+                    }
+                }
+                writeOffsets(out, rowStarts);
+
+                //every ordered pair of co-stars in each cast; pairs from several movies collapse into one edge
+                int[] cast = new int[16];
+                int size = 0, movie = -1;
+                while (byMovie.hasNext()) {
+                    long credit = byMovie.next();
+                    if ((int) (credit >>> 32) != movie) {
+                        addPairs(pairs, cast, size);
+                        movie = (int) (credit >>> 32);
+                        size = 0;
+                    }
+                    if (size == cast.length) {
+                        cast = Arrays.copyOf(cast, size * 2);
+                    }
+                    cast[size++] = (int) credit;
+                }
+                addPairs(pairs, cast, size);
+            }
+
+            Arrays.fill(rowStarts, 0);
+            while (pairs.hasNext()) {
+                long pair = pairs.next();
+                out.writeInt((int) pair);
+                rowStarts[(int) (pair >>> 32) + 1]++;
+                edgeCount++;
+            }
+            System.err.printf("sorted %,d co-star pairs in %d runs%n", pairs.count(), Math.max(1, pairs.numRuns()));
+            writeOffsets(out, rowStarts);
+
+            names.trim();
+            titles.trim();
+            for (int end : names.ends) {
+                out.writeInt(end);
+            }
+            for (int end : titles.ends) {
+                out.writeInt(end);
+            }
+            out.write(names.bytes);
+            out.write(titles.bytes);
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(checksum).putInt(n).putInt(movies).putLong(edgeCount)
+                    .putLong(credits).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.err.printf("built %s: %,d actors, %,d edges in %.1f s%n", file, n, edgeCount, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Sets map[key] = value, growing map as needed; returns the (possibly new) map
+     */
+    private static int[] put(int[] map, int key, int value) {
+        if (key >= map.length) {
+            map = Arrays.copyOf(map, Math.max(key + 1, map.length * 2));
+        }
+        map[key] = value;
+        return map;
+    }
+
+    /**
+     * Adds both directions of every pair in cast[0 .. size - 1] to pairs
+     */
+    private static void addPairs(ExternalSort pairs, int[] cast, int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j) {
+                    pairs.add((long) cast[i] << 32 | cast[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns per-actor counts (shifted by one) into row starts and writes them
+     */
+    private static void writeOffsets(DataOutputStream out, long[] counts) throws IOException {
+        for (int v = 0; v + 1 < counts.length; v++) {
+            counts[v + 1] += counts[v];
+        }
+        for (long offset : counts) {
+            out.writeLong(offset);
+        }
+    }
+
+    /**
+     * Reads a pipe-delimited file a line at a time, so nothing but the current line is held
+     */
+    private static void readRows(String file, RowHandler handler) throws IOException {
+        long malformed = 0;
+        try (BufferedReader input = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                int bar = line.indexOf('|');
+                if (bar < 0) {
+                    malformed++;
+                    continue;
+                }
+                int end = line.indexOf('|', bar + 1);
+                handler.row(line.substring(0, bar), line.substring(bar + 1, end < 0 ? line.length() : end));
+            }
+        }
+        if (malformed > 0) {
+            System.err.println(file + ": " + malformed + " malformed rows skipped");
+        }
+    }
+
+    /**
+     * Maps a file written by build; returns null if it is not a mapped graph of this version
+     */
+    public static MappedGraph open(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            long checksum = header.getLong();
+            int n = header.getInt(), movies = header.getInt();
+            long edges = header.getLong(), credits = header.getLong();
+
+            //mappings stay valid after the channel is closed
+            long position = HEADER_BYTES;
+            Section actorMovies = new Section(channel, position, 4 * credits);
+            position += 4 * credits;
+            Section actorOffsets = new Section(channel, position, 8L * (n + 1));
+            position += 8L * (n + 1);
+            Section targets = new Section(channel, position, 4 * edges);
+            position += 4 * edges;
+            Section offsets = new Section(channel, position, 8L * (n + 1));
+            position += 8L * (n + 1);
+            long mapped = position - HEADER_BYTES;
+
+            int[] nameEnds = GraphSnapshot.readInts(channel, position, n);
+            position += 4L * n;
+            int[] titleEnds = GraphSnapshot.readInts(channel, position, movies);
+            position += 4L * movies;
+            SymbolTable names = GraphSnapshot.readStrings(channel, position, nameEnds);
+            position += n == 0 ? 0 : nameEnds[n - 1];
+            SymbolTable titles = GraphSnapshot.readStrings(channel, position, titleEnds);
+
+            return new MappedGraph(names, titles, checksum, actorOffsets, actorMovies, offsets, targets, edges, mapped);
+        }
+    }
+
+    public long checksum() {
+        return checksum;
+    }
+
+    /**
+     * Returns the name of the movie with the given id
+     */
+    public String title(int m) {
+        return titles.get(m);
+    }
+
+    /**
+     * Returns the number of movies
+     */
+    public int numMovies() {
+        return titles.size();
+    }
+
+    /**
+     * Index of actor v's first edge; its edges run from firstEdge(v) up to endEdge(v)
+     */
+    public long firstEdge(int v) {
+        return offsets.getLong(v);
+    }
+
+    /**
+     * Index just past actor v's last edge
+     */
+    public long endEdge(int v) {
+        return offsets.getLong(v + 1);
+    }
+
+    /**
+     * Neighbor actor id at edge index e
+     */
+    public int target(long e) {
+        return targets.getInt(e);
+    }
+
+    /**
+     * Edge index of v in u's row, found by binary search, or -1 if they are not co-stars
+     */
+    private long edge(int u, int v) {
+        long low = firstEdge(u), high = endEdge(u) - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int t = targets.getInt(mid);
+            if (t < v) {
+                low = mid + 1;
+            }
+            else if (t > v) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Movies both actors appeared in, by merging their sorted movie lists; null if there are none
+     */
+    private Set<String> sharedMovies(int u, int v) {
+        Set<String> shared = null;
+        long i = actorOffsets.getLong(u), iEnd = actorOffsets.getLong(u + 1);
+        long j = actorOffsets.getLong(v), jEnd = actorOffsets.getLong(v + 1);
+        while (i < iEnd && j < jEnd) {
+            int a = actorMovies.getInt(i), b = actorMovies.getInt(j);
+            if (a < b) {
+                i++;
+            }
+            else if (a > b) {
+                j++;
+            }
+            else {
+                if (shared == null) {
+                    shared = new LinkedHashSet<>();
+                }
+                shared.add(titles.get(a));
+                i++;
+                j++;
+            }
+        }
+        return shared == null ? null : Collections.unmodifiableSet(shared);
+    }
+
+    @Override
+    public int id(String name) {
+        return names.id(name);
+    }
+
+    @Override
+    public String name(int v) {
+        return names.get(v);
+    }
+
+    @Override
+    public Set<String> stepLabel(int u, int v, int via) {
+        return sharedMovies(u, v); //labels are not stored per edge; the actors' movie lists give them
+    }
+
+    @Override
+    public int numVertices() {
+        return names.size();
+    }
+
+    @Override
+    public int numEdges() {
+        return (int) Math.min(edges, Integer.MAX_VALUE); //Graph counts edges in an int
+    }
+
+    /**
+     * Number of edges, counting each undirected edge once per direction, without the int cap of numEdges
+     */
+    public long edgeCount() {
+        return edges;
+    }
+
+    @Override
+    public Iterable<String> vertices() {
+        return names.asList(); //names are decoded as they are iterated
+    }
+
+    @Override
+    public boolean hasVertex(String v) {
+        return names.id(v) >= 0;
+    }
+
+    @Override
+    public boolean hasEdge(String u, String v) {
+        int a = names.id(u), b = names.id(v);
+        return a >= 0 && b >= 0 && edge(a, b) >= 0;
+    }
+
+    @Override
+    public Set<String> getLabel(String u, String v) {
+        int a = names.id(u), b = names.id(v);
+        if (a < 0 || b < 0 || edge(a, b) < 0) {
+            return null;
+        }
+        return sharedMovies(a, b);
+    }
+
+    @Override
+    public int outDegree(String v) {
+        int id = names.id(v);
+        return (int) (endEdge(id) - firstEdge(id));
+    }
+
+    @Override
+    public int inDegree(String v) {
+        return outDegree(v); //every edge is undirected
+    }
+
+    @Override
+    public Iterable<String> outNeighbors(String v) {
+        int id = names.id(v);
+        List<String> neighbors = new ArrayList<>();
+        for (long e = firstEdge(id); e < endEdge(id); e++) {
+            neighbors.add(names.get(targets.getInt(e)));
+        }
+        return neighbors;
+    }
+
+    @Override
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v); //every edge is undirected
+    }
+
+    @Override
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public String toString() {
+        return "MappedGraph: " + numVertices() + " actors, " + edges / 2 + " undirected edges, " + numMovies()
+                + " movies, " + (mappedBytes >> 20) + " MB mapped";
+    }
+}
@@ -0,0 +1,298 @@
+import java.util.*;
+
+/**
+ * Read-only bipartite actor-movie graph for Bacon Game; instead of expanding every cast into a clique of
+ * actor pairs, it keeps each actor's movies and each movie's cast in compressed-sparse-row arrays.
+ * Co-star edges and their labels are recovered from shared movies when asked for, so it answers the same
+ * Graph queries as CompactGraph, and BFS steps actor -> movie -> actor.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class MovieGraph implements ActorGraph {
+    final SymbolTable names;                //actor names by actor id
+    final SymbolTable titles;               //movie names by movie id
+    final int[] actorOffsets;               //movies of actor v are actorMovies[actorOffsets[v]] .. actorMovies[actorOffsets[v+1]-1]
+    final int[] actorMovies;                //movie ids, sorted within each actor
+    final int[] movieOffsets;               //cast of movie m is movieCast[movieOffsets[m]] .. movieCast[movieOffsets[m+1]-1]
+    final int[] movieCast;                  //actor ids
+    private volatile int[] degrees;         //Index: actor id, Value: number of distinct co-stars, computed when first needed
+
+    /**
+     * Builds the graph from the actor names and a Map with Key: Movie Name and Value: Set of Actors in that Movie;
+     * actors and movies get the same ids as in a CompactGraph built from the same arguments
+     */
+    public MovieGraph(Collection<String> actors, Map<String, Set<String>> moviesActors) {
+        //intern actor names and movie titles to ids
+        names = new SymbolTable(actors.size());
+        for (String actor : actors) {
+            if (actor != null) {
+                names.intern(actor);
+            }
+        }
+        String[] movieList = moviesActors.keySet().toArray(new String[0]);
+        titles = new SymbolTable(movieList.length);
+        for (String title : movieList) {
+            titles.intern(title);
+        }
+
+        //lay out every cast as actor ids, counting movies per actor as we go
+        int n = names.size();
+        int movies = movieList.length;
+        int total = 0;
+        for (String title : movieList) {
+            total += moviesActors.get(title).size();
+        }
+        movieOffsets = new int[movies + 1];
+        int[] cast = new int[total];
+        int[] counts = new int[n + 1];  //number of movies per actor, shifted by one
+        int size = 0;
+        for (int m = 0; m < movies; m++) {
+            movieOffsets[m] = size;
+            for (String actor : moviesActors.get(movieList[m])) {
+                int id = names.id(actor);
+                if (id >= 0) {
+                    cast[size++] = id;
+                    counts[id + 1]++;
+                }
+            }
+        }
+        movieOffsets[movies] = size;
+        movieCast = Arrays.copyOf(cast, size);
+
+        //invert casts into each actor's movies; movies are visited in id order, so every list comes out sorted
+        for (int v = 0; v < n; v++) {
+            counts[v + 1] += counts[v];
+        }
+        actorOffsets = counts;
+        actorMovies = new int[size];
+        int[] fill = Arrays.copyOf(counts, n);
+        for (int m = 0; m < movies; m++) {
+            for (int j = movieOffsets[m]; j < movieOffsets[m + 1]; j++) {
+                actorMovies[fill[movieCast[j]]++] = m;
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the movie with the given id
+     */
+    public String title(int m) {
+        return titles.get(m);
+    }
+
+    /**
+     * Returns the number of movies
+     */
+    public int numMovies() {
+        return titles.size();
+    }
+
+    /**
+     * Index of actor v's first movie; its movies run from firstMovie(v) up to firstMovie(v + 1)
+     */
+    public int firstMovie(int v) {
+        return actorOffsets[v];
+    }
+
+    /**
+     * Movie id at index i of the actor movie lists
+     */
+    public int movie(int i) {
+        return actorMovies[i];
+    }
+
+    /**
+     * Index of movie m's first cast member; its cast runs from firstCastMember(m) up to firstCastMember(m + 1)
+     */
+    public int firstCastMember(int m) {
+        return movieOffsets[m];
+    }
+
+    /**
+     * Actor id at index j of the movie casts
+     */
+    public int castMember(int j) {
+        return movieCast[j];
+    }
+
+    /**
+     * Movies both actors appeared in, by merging their sorted movie lists; null if there are none
+     */
+    private Set<String> sharedMovies(int u, int v) {
+        Set<String> shared = null;
+        int i = actorOffsets[u], j = actorOffsets[v];
+        while (i < actorOffsets[u + 1] && j < actorOffsets[v + 1]) {
+            if (actorMovies[i] < actorMovies[j]) {
+                i++;
+            }
+            else if (actorMovies[i] > actorMovies[j]) {
+                j++;
+            }
+            else {
+                if (shared == null) {
+                    shared = new LinkedHashSet<>();
+                }
+                shared.add(titles.get(actorMovies[i]));
+                i++;
+                j++;
+            }
+        }
+        return shared == null ? null : Collections.unmodifiableSet(shared);
+    }
+
+    /**
+     * Distinct co-stars of actor v, sorted by id
+     */
+    private int[] coStars(int v) {
+        int count = 0;
+        for (int i = actorOffsets[v]; i < actorOffsets[v + 1]; i++) {
+            int m = actorMovies[i];
+            count += movieOffsets[m + 1] - movieOffsets[m];
+        }
+        int[] all = new int[count];
+        count = 0;
+        for (int i = actorOffsets[v]; i < actorOffsets[v + 1]; i++) {
+            int m = actorMovies[i];
+            for (int j = movieOffsets[m]; j < movieOffsets[m + 1]; j++) {
+                all[count++] = movieCast[j];
+            }
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] != v && (distinct == 0 || all[i] != all[distinct - 1])) {
+                all[distinct++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Number of distinct co-stars of every actor, counted the first time a degree is asked for; reads take no lock,
+     * and threads that race on the first call each count the same array and publish it through the volatile field
+     */
+    private int[] degrees() {
+        int[] d = degrees;
+        if (d == null) {
+            d = new int[names.size()];
+            for (int v = 0; v < d.length; v++) {
+                d[v] = coStars(v).length;
+            }
+            degrees = d;
+        }
+        return d;
+    }
+
+    @Override
+    public int id(String name) {
+        return names.id(name);
+    }
+
+    @Override
+    public String name(int v) {
+        return names.get(v);
+    }
+
+    @Override
+    public Set<String> stepLabel(int u, int v, int via) {
+        return sharedMovies(u, v); //via is just one of the movies; the label lists all of them
+    }
+
+    @Override
+    public int numVertices() {
+        return names.size();
+    }
+
+    @Override
+    public int numEdges() {
+        long sum = 0;
+        for (int d : degrees()) {
+            sum += d;
+        }
+        return (int) sum; //each co-star pair counts once per direction, as in AdjacencyMapGraph
+    }
+
+    @Override
+    public Iterable<String> vertices() {
+        return names.asList(); //names are decoded as they are iterated
+    }
+
+    @Override
+    public boolean hasVertex(String v) {
+        return names.id(v) >= 0;
+    }
+
+    @Override
+    public boolean hasEdge(String u, String v) {
+        return getLabel(u, v) != null;
+    }
+
+    @Override
+    public Set<String> getLabel(String u, String v) {
+        int a = names.id(u), b = names.id(v);
+        if (a < 0 || b < 0 || a == b) {
+            return null;
+        }
+        return sharedMovies(a, b);
+    }
+
+    @Override
+    public int outDegree(String v) {
+        return degrees()[names.id(v)];
+    }
+
+    @Override
+    public int inDegree(String v) {
+        return outDegree(v); //every co-star relation is undirected
+    }
+
+    @Override
+    public Iterable<String> outNeighbors(String v) {
+        List<String> neighbors = new ArrayList<>();
+        for (int u : coStars(names.id(v))) {
+            neighbors.add(names.get(u));
+        }
+        return neighbors;
+    }
+
+    @Override
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v); //every co-star relation is undirected
+    }
+
+    @Override
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public void insertDirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public void insertUndirected(String u, String v, Set<String> e) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("MovieGraph is read-only");
+    }
+
+    @Override
+    public String toString() {
+        return "MovieGraph: " + numVertices() + " actors, " + numMovies() + " movies, " + movieCast.length + " credits";
+    }
+}
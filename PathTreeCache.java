@@ -0,0 +1,239 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU cache of shortest path trees for Bacon Game, keyed by center actor id, so switching
+ * back to a recent center of the universe skips the BFS. Trees are evicted when either the number of
+ * cached trees or their total size goes over its cap; pinned trees (e.g. baconGraph) are never evicted.
+ * Lookups that hit read concurrent maps without locking, so server sessions do not queue on one monitor.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class PathTreeCache {
+    /**
+     * A cached tree and when it was last handed out, for LRU eviction
+     */
+    private static class Entry {
+        final ShortestPathResult tree;
+        volatile long used;         //tick of the last get that returned it
+
+        Entry(ShortestPathResult tree, long used) {
+            this.tree = tree;
+            this.used = used;
+        }
+    }
+
+    private final ActorGraph graph;
+    private final int maxTrees;     //most unpinned trees kept at once
+    private final long maxBytes;    //most bytes of unpinned trees kept at once
+    //lookups read these maps without locking; only adding, pinning and dropping trees take the lock
+    private final Map<Integer, Entry> trees = new ConcurrentHashMap<>();
+    private final Map<Integer, ShortestPathResult> pinned = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock(); //a lock rather than a monitor, so virtual threads can unmount
+    private final AtomicLong clock = new AtomicLong();     //ticks once per hit or put, giving the access order
+    private volatile long bytes;    //size of the unpinned trees, written under lock
+    private volatile int generation; //bumped whenever the graph changes, so trees computed before are not put back
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private Thread warmer;          //background warm-up, if one was started
+    private volatile boolean stopWarming;
+
+    public PathTreeCache(ActorGraph g, int maxTrees, long maxBytes) {
+        graph = g;
+        this.maxTrees = maxTrees;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shortest path tree centered at actor id center, running BFS only if it is not cached;
+     * a hit takes no lock
+     */
+    public ShortestPathResult get(int center) {
+        ShortestPathResult tree = pinned.get(center);
+        if (tree != null) {
+            hits.increment();
+            return tree;
+        }
+        Entry entry = trees.get(center);
+        if (entry != null) {
+            entry.used = clock.incrementAndGet();
+            hits.increment();
+            return entry.tree;
+        }
+        misses.increment();
+        int seen = generation;
+
+        //run BFS without holding the lock, so that warm-up and lookups of other centers are not held up
+        tree = BaconGraphLib.bfs(graph, center, new ShortestPathResult(graph));
+        put(center, tree, true, seen);
+        return tree;
+    }
+
+    /**
+     * Keeps tree for good, outside of the LRU order and the caps
+     */
+    public void pin(ShortestPathResult tree) {
+        int center = tree.root();
+        lock.lock();
+        try {
+            Entry cached = trees.remove(center);
+            if (cached != null) {
+                bytes -= cached.tree.bytes();
+            }
+            pinned.put(center, tree);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every unpinned tree but keep (may be null), after the graph has changed; pinned trees and keep
+     * stay, and the caller repairs them
+     */
+    public void invalidate(ShortestPathResult keep) {
+        lock.lock();
+        try {
+            generation++;
+            Iterator<Entry> it = trees.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.tree != keep) {
+                    bytes -= entry.tree.bytes();
+                    it.remove();
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds tree, computed when the cache was at the given generation, to the cache;
+     * unless evict is set, only if that fits without evicting anything
+     */
+    private void put(int center, ShortestPathResult tree, boolean evict, int computed) {
+        lock.lock();
+        try {
+            if (computed != generation) {
+                return; //the graph changed while the tree was being computed
+            }
+            if (pinned.containsKey(center) || trees.containsKey(center)) {
+                return; //another thread got there first
+            }
+            if (!evict && (trees.size() + 1 > maxTrees || bytes + tree.bytes() > maxBytes)) {
+                return;
+            }
+            trees.put(center, new Entry(tree, clock.incrementAndGet()));
+            bytes += tree.bytes();
+
+            //evict least recently used trees until under both caps, but keep the one just added;
+            //there are at most maxTrees + 1 of them, so a scan for the oldest is cheap
+            while (trees.size() > 1 && (trees.size() > maxTrees || bytes > maxBytes)) {
+                int oldest = center;
+                long used = Long.MAX_VALUE;
+                for (Map.Entry<Integer, Entry> e : trees.entrySet()) {
+                    if (e.getKey() != center && e.getValue().used < used) {
+                        oldest = e.getKey();
+                        used = e.getValue().used;
+                    }
+                }
+                bytes -= trees.remove(oldest).tree.bytes();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a background thread that fills free cache slots with the trees of the topN actors by degree;
+     * stopWarmUp() must be called before the graph is changed, since it runs BFS over the graph's arrays
+     */
+    public Thread warmUp(int topN) {
+        Thread thread = new Thread(() -> {
+            //keep the topN highest degrees in a min-heap
+            PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingInt((Integer v) -> graph.outDegree(graph.name(v))));
+            for (int v = 0; v < graph.numVertices(); v++) {
+                top.add(v);
+                if (top.size() > topN) {
+                    top.remove();
+                }
+            }
+            for (int center : top) {
+                if (stopWarming) {
+                    return;
+                }
+                if (pinned.containsKey(center) || trees.containsKey(center)) {
+                    continue;
+                }
+                if (trees.size() >= maxTrees) {
+                    return; //warm-up never pushes out trees someone asked for
+                }
+                int seen = generation;
+                put(center, BaconGraphLib.bfs(graph, center, new ShortestPathResult(graph)), false, seen);
+            }
+        }, "path-tree-warm-up");
+        thread.setDaemon(true);
+        stopWarming = false;
+        warmer = thread;
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stops the warm-up thread, if one is running, and waits for the BFS it is in the middle of to finish
+     */
+    public void stopWarmUp() {
+        Thread thread = warmer;
+        if (thread == null) {
+            return;
+        }
+        stopWarming = true;
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true; //still wait, the graph must not change under the BFS
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        warmer = null;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of unpinned trees in the cache
+     */
+    public int size() {
+        return trees.size();
+    }
+
+    /**
+     * Total size of the unpinned trees in the cache
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PathTreeCache: " + trees.size() + "/" + maxTrees + " trees, " + bytes / 1024 + "/" + maxBytes / 1024
+                + " KB, " + pinned.size() + " pinned, " + hits.sum() + " hits, " + misses.sum() + " misses";
+    }
+}
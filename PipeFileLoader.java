@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel loader for the pipe-delimited input files of Bacon Game; each file is cut into line-aligned
+ * byte ranges that are scanned for '|' and '\n' directly (no readLine or regex split) on a fork-join pool,
+ * and the per-range results are merged in file order. Malformed rows are counted and skipped.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class PipeFileLoader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;    //ranges smaller than this are not worth a task
+    private static final int MAX_CHUNK_BYTES = 1 << 28;    //ranges are read into one byte[] each
+    private static final int SCAN_BYTES = 1 << 12;         //window used to look for a line break
+
+    private final ForkJoinPool pool;
+    private long rows;          //rows read by the last call
+    private long warnings;      //malformed rows skipped by the last call
+
+    /**
+     * Called for each row with its two fields, as [start, end) byte ranges of chunk
+     */
+    private interface RowHandler<T> {
+        void row(T result, byte[] chunk, int firstStart, int firstEnd, int secondStart, int secondEnd);
+    }
+
+    public PipeFileLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long warnings() {
+        return warnings;
+    }
+
+    /**
+     * Reads an "id|name" file (actors or movies) and returns a Map with Key: ID and Value: Name
+     */
+    public Map<String, String> readNames(String file) {
+        List<Map<String, String>> parts = parse(file, HashMap::new,
+                (map, chunk, fs, fe, ss, se) -> map.put(string(chunk, fs, fe), string(chunk, ss, se)));
+
+        Map<String, String> map = new HashMap<>();
+        for (Map<String, String> part : parts) {
+            map.putAll(part); //later rows win, as when reading line by line
+        }
+        return map;
+    }
+
+    /**
+     * Reads a "movie id|actor id" file and returns a Map with Key: Movie Name and Value: Set of Actors in that Movie;
+     * rows naming an unknown movie or actor are counted as warnings
+     */
+    public Map<String, Set<String>> readMoviesActors(Map<String, String> actors, Map<String, String> movies, String file) {
+        AtomicLong unknown = new AtomicLong();
+        List<Map<String, Set<String>>> parts = parse(file, HashMap::new, (map, chunk, fs, fe, ss, se) -> {
+            String movie = movies.get(string(chunk, fs, fe));
+            String actor = actors.get(string(chunk, ss, se));
+            if (movie == null || actor == null) {
+                unknown.incrementAndGet();
+                return;
+            }
+            map.computeIfAbsent(movie, k -> new HashSet<>()).add(actor); //adds actor to the set of actors for a movie
+        });
+
+        Map<String, Set<String>> map = new HashMap<>();
+        for (Map<String, Set<String>> part : parts) {
+            for (Map.Entry<String, Set<String>> entry : part.entrySet()) {
+                Set<String> cast = map.get(entry.getKey());
+                if (cast == null) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+                else {
+                    cast.addAll(entry.getValue());
+                }
+            }
+        }
+        if (unknown.get() > 0) {
+            System.err.println(file + ": " + unknown.get() + " rows refer to an unknown movie or actor, skipped");
+            warnings += unknown.get();
+        }
+        return map;
+    }
+
+    /**
+     * Splits file into line-aligned ranges, parses them in parallel into one result each, and returns
+     * the results in file order; prints the row rate and any malformed row count
+     */
+    private <T> List<T> parse(String file, Callable<T> newResult, RowHandler<T> handler) {
+        long start = System.nanoTime();
+        rows = 0;
+        warnings = 0;
+        List<T> results = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long[] bounds = split(channel, pool.getParallelism() * 4);
+
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                T result = newResult.call();
+                results.add(result);
+                long from = bounds[i], to = bounds[i + 1];
+                tasks.add(() -> parseRange(channel, from, to, result, handler));
+            }
+            for (Future<long[]> counts : pool.invokeAll(tasks)) {
+                rows += counts.get()[0];
+                warnings += counts.get()[1];
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Cannot read file.\n" + e.getMessage());
+        }
+        catch (Exception e) {
+            System.err.println("Error while parsing " + file + ".\n" + e);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("read %,d rows from %s in %.3f s (%,.0f rows/s)%n", rows, file, seconds, rows / seconds);
+        if (warnings > 0) {
+            System.err.println(file + ": " + warnings + " malformed rows skipped");
+        }
+        return results;
+    }
+
+    /**
+     * Cuts the file into about the given number of ranges, each starting at the beginning of a line
+     */
+    private static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        long step = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, size / parts + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer window = ByteBuffer.allocate(SCAN_BYTES);
+
+        long next = step;
+        while (next < size) {
+            //move the cut to just after the next line break
+            long position = next - 1;
+            boolean found = false;
+            while (!found && position < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                for (int i = 0; i < read && !found; i++) {
+                    if (window.get(i) == '\n') {
+                        position += i + 1;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    position += Math.max(read, 1);
+                }
+            }
+            if (position >= size) {
+                break;
+            }
+            bounds.add(position);
+            next = position + step;
+        }
+        bounds.add(size);
+
+        long[] array = new long[bounds.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = bounds.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Parses the lines in [from, to) into result; returns {rows, malformed rows}
+     */
+    private static <T> long[] parseRange(FileChannel channel, long from, long to, T result, RowHandler<T> handler) throws IOException {
+        byte[] chunk = new byte[(int) (to - from)];
+        channel.map(FileChannel.MapMode.READ_ONLY, from, chunk.length).get(chunk);
+
+        long rows = 0, malformed = 0;
+        int lineStart = 0;
+        while (lineStart < chunk.length) {
+            //find the end of the line and the '|' separators in it
+            int lineEnd = lineStart, firstBar = -1, secondBar = -1;
+            while (lineEnd < chunk.length && chunk[lineEnd] != '\n') {
+                if (chunk[lineEnd] == '|') {
+                    if (firstBar < 0) {
+                        firstBar = lineEnd;
+                    }
+                    else if (secondBar < 0) {
+                        secondBar = lineEnd;
+                    }
+                }
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && chunk[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+
+            int secondEnd = secondBar < 0 ? lineEnd : secondBar; //anything after a second '|' is ignored
+            if (firstBar <= lineStart || secondEnd <= firstBar + 1) {
+                if (lineEnd > lineStart) {
+                    malformed++; //missing separator or empty field; blank lines are skipped silently
+                }
+            }
+            else {
+                handler.row(result, chunk, lineStart, firstBar, firstBar + 1, secondEnd);
+                rows++;
+            }
+            lineStart = next;
+        }
+        return new long[] {rows, malformed};
+    }
+
+    private static String string(byte[] chunk, int start, int end) {
+        return new String(chunk, start, end - start, StandardCharsets.UTF_8);
+    }
+}
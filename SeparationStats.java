@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+/**
+ * Separation statistics of one center of the universe for Bacon Game, accumulated while BFS runs:
+ * sum of separations, number of connected actors, eccentricity and how many actors sit at each separation.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class SeparationStats {
+    private final long distanceSum;     //sum of separations of every connected actor
+    private final int reachedCount;     //actors connected to the center, not counting itself
+    private final int[] histogram;      //Index: separation, Value: number of actors at that separation (index 0 is the center)
+
+    public SeparationStats(long distanceSum, int reachedCount, int[] histogram) {
+        this.distanceSum = distanceSum;
+        this.reachedCount = reachedCount;
+        this.histogram = histogram;
+    }
+
+    public long distanceSum() {
+        return distanceSum;
+    }
+
+    public int reachedCount() {
+        return reachedCount;
+    }
+
+    /**
+     * Largest separation of any connected actor
+     */
+    public int eccentricity() {
+        return histogram.length - 1;
+    }
+
+    /**
+     * Number of actors at separation d from the center
+     */
+    public int count(int d) {
+        return d >= 0 && d < histogram.length ? histogram[d] : 0;
+    }
+
+    /**
+     * Average separation of the connected actors, as BaconGraphLib.averageSeparation computes it
+     */
+    public double averageSeparation() {
+        return (double) distanceSum / reachedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "connected " + reachedCount + ", average separation " + averageSeparation() + ", eccentricity "
+                + eccentricity() + ", actors per separation " + Arrays.toString(histogram);
+    }
+}
@@ -0,0 +1,322 @@
+import java.util.*;
+
+/**
+ * Shortest path tree for Bacon Game stored as int arrays over an ActorGraph's actor ids;
+ * filled in place by BaconGraphLib.bfs so that one result can be reused for many centers.
+ * Actors are kept grouped by separation (BFS order) followed by every unreached actor,
+ * so separation ranges and the unreachable set are read off without scanning the graph.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class ShortestPathResult {
+    private final ActorGraph graph;     //graph the tree was built over
+    int[] distance;                     //Index: actor id, Value: separation from the root, -1 if not reached
+    int[] parent;                       //Index: actor id, Value: parent actor id, -1 for the root
+    int[] via;                          //Index: actor id, Value: edge (CompactGraph) or movie (MovieGraph) followed from parent, -1 for MappedGraph
+    int[] order;                        //all actor ids: the first reached in BFS order (doubling as the queue), then the rest
+    private int[] position;             //Index: actor id, Value: index of the actor in order
+    private int size;                   //number of actors covered; the arrays may have room for more
+    int reached;                        //number of actors reached, including the root
+    private int[] levelStarts = new int[8]; //Index: separation, Value: index in order of the first actor at that separation
+    private int levels;                 //number of separations in levelStarts
+    private long distanceSum;           //sum of separations of the reached actors, kept up as they are visited
+    final int[] movieSeen;              //MovieGraph only; Index: movie id, Value: last traversal that expanded the movie
+    int movieStamp;                     //MovieGraph only; number of the current traversal
+
+    /**
+     * Allocates an empty tree big enough for any center in g
+     */
+    public ShortestPathResult(ActorGraph g) {
+        graph = g;
+        int n = g.numVertices();
+        distance = new int[n];
+        parent = new int[n];
+        via = new int[n];
+        order = new int[n];
+        position = new int[n];
+        size = n;
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            position[v] = v;
+        }
+        Arrays.fill(distance, -1);
+        movieSeen = g instanceof MovieGraph ? new int[((MovieGraph) g).numMovies()] : null;
+    }
+
+    /**
+     * Forgets the previous tree; only touches the actors it had reached
+     */
+    void clear() {
+        for (int i = 0; i < reached; i++) {
+            distance[order[i]] = -1;
+        }
+        reached = 0;
+        levels = 0;
+        distanceSum = 0;
+        if (movieSeen != null && ++movieStamp == Integer.MAX_VALUE) { //start stamps over before they wrap
+            Arrays.fill(movieSeen, 0);
+            movieStamp = 1;
+        }
+    }
+
+    /**
+     * Marks v as reached at separation d from parent p via edge or movie w, moving it to the end of the reached
+     * actors in order (swapping whichever unreached actor was there into v's old place)
+     */
+    void visit(int v, int d, int p, int w) {
+        distance[v] = d;
+        parent[v] = p;
+        via[v] = w;
+        distanceSum += d;
+        if (d == levels) { //first actor at a new separation
+            if (levels == levelStarts.length) {
+                levelStarts = Arrays.copyOf(levelStarts, levels * 2);
+            }
+            levelStarts[levels++] = reached;
+        }
+
+        int i = position[v], u = order[reached];
+        order[i] = u;
+        position[u] = i;
+        order[reached] = v;
+        position[v] = reached;
+        reached++;
+    }
+
+    /**
+     * Sorts the actors at indexes from .. to - 1 of order (one whole level) by id
+     */
+    void sortLevel(int from, int to) {
+        Arrays.sort(order, from, to);
+        for (int i = from; i < to; i++) {
+            position[order[i]] = i;
+        }
+    }
+
+    /**
+     * Makes room for actors added to the graph since this tree was allocated; they start out unreached
+     */
+    void grow(int n) {
+        if (n <= size) {
+            return;
+        }
+        if (n > distance.length) {
+            int capacity = Math.max(n, distance.length * 3 / 2);
+            distance = Arrays.copyOf(distance, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            via = Arrays.copyOf(via, capacity);
+            order = Arrays.copyOf(order, capacity);
+            position = Arrays.copyOf(position, capacity);
+        }
+        for (int v = size; v < n; v++) {
+            distance[v] = -1;
+            order[v] = v;
+            position[v] = v;
+        }
+        size = n;
+    }
+
+    /**
+     * Changes the separation of actor v, already in the tree or not, to d (-1 for unreached) with parent p via w,
+     * walking it one level at a time to the matching group of order; each step swaps it with the
+     * actor at the boundary of its group, so the cost is the number of levels crossed
+     */
+    void move(int v, int d, int p, int w) {
+        int from = distance[v];
+        distanceSum += (d < 0 ? 0 : d) - (from < 0 ? 0 : from);
+        distance[v] = d;
+        parent[v] = p;
+        via[v] = w;
+
+        while (d >= levels) { //open empty levels up to d
+            if (levels == levelStarts.length) {
+                levelStarts = Arrays.copyOf(levelStarts, levels * 2);
+            }
+            levelStarts[levels++] = reached;
+        }
+        //unreached actors act as one more level after the last, starting at reached
+        int a = from < 0 ? levels : from;
+        int b = d < 0 ? levels : d;
+        while (a < b) { //to the end of level a, then over the boundary into level a + 1
+            swap(position[v], levelStart(a + 1) - 1);
+            if (a + 1 < levels) {
+                levelStarts[a + 1]--;
+            }
+            else {
+                reached--;
+            }
+            a++;
+        }
+        while (a > b) { //to the start of level a, then over the boundary into level a - 1
+            swap(position[v], a < levels ? levelStarts[a] : reached);
+            if (a < levels) {
+                levelStarts[a]++;
+            }
+            else {
+                reached++;
+            }
+            a--;
+        }
+        while (levels > 0 && levelStarts[levels - 1] == reached) { //drop levels left empty at the top
+            levels--;
+        }
+    }
+
+    /**
+     * Gives actor v a new parent p via w at the same separation
+     */
+    void reparent(int v, int p, int w) {
+        parent[v] = p;
+        via[v] = w;
+    }
+
+    /**
+     * Swaps the actors at indexes i and j of order
+     */
+    private void swap(int i, int j) {
+        int u = order[i], x = order[j];
+        order[i] = x;
+        position[x] = i;
+        order[j] = u;
+        position[u] = j;
+    }
+
+    public ActorGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Id of the center of the universe for this tree, or -1 if the tree is empty
+     */
+    public int root() {
+        return reached == 0 ? -1 : order[0];
+    }
+
+    /**
+     * Separation of actor v from the root, or -1 if v was not reached
+     */
+    public int distance(int v) {
+        return distance[v];
+    }
+
+    /**
+     * Parent of actor v on its path to the root, or -1 for the root and unreached actors
+     */
+    public int parent(int v) {
+        return distance[v] <= 0 ? -1 : parent[v];
+    }
+
+    /**
+     * Movies shared by actor v and its parent
+     */
+    public Set<String> parentLabel(int v) {
+        return distance[v] <= 0 ? null : graph.stepLabel(parent[v], v, via[v]);
+    }
+
+    /**
+     * The i-th actor reached by BFS, for i from 0 (the root) to numVertices() - 1
+     */
+    public int vertex(int i) {
+        return order[i];
+    }
+
+    /**
+     * Index in BFS order of the first actor at separation d; actors at separations low .. high are
+     * vertex(levelStart(low)) up to (not including) vertex(levelStart(high + 1))
+     */
+    public int levelStart(int d) {
+        if (d <= 0) {
+            return 0;
+        }
+        return d < levels ? levelStarts[d] : reached;
+    }
+
+    /**
+     * Largest separation of any reached actor, or -1 if the tree is empty
+     */
+    public int maxDistance() {
+        return levels - 1;
+    }
+
+    /**
+     * Sum of separations from the root to every reached actor
+     */
+    public long distanceSum() {
+        return distanceSum;
+    }
+
+    /**
+     * Distance sum, connected count, eccentricity and per-separation counts of this tree, gathered during BFS
+     */
+    public SeparationStats stats() {
+        int[] histogram = new int[levels];
+        for (int d = 0; d < levels; d++) {
+            histogram[d] = levelStart(d + 1) - levelStart(d);
+        }
+        return new SeparationStats(distanceSum, numEdges(), histogram);
+    }
+
+    /**
+     * Number of actors the root cannot reach
+     */
+    public int numUnreached() {
+        return size - reached;
+    }
+
+    /**
+     * The i-th actor the root cannot reach, for i from 0 to numUnreached() - 1
+     */
+    public int unreached(int i) {
+        return order[reached + i];
+    }
+
+    /**
+     * Number of actors in the tree, including the root
+     */
+    public int numVertices() {
+        return reached;
+    }
+
+    /**
+     * Number of tree edges, i.e. actors connected to the root
+     */
+    public int numEdges() {
+        return reached == 0 ? 0 : reached - 1;
+    }
+
+    /**
+     * Approximate heap used by this tree's arrays, summed from their actual lengths
+     */
+    public long bytes() {
+        long ints = (long) distance.length + parent.length + via.length + order.length + position.length + levelStarts.length;
+        return 4 * (ints + (movieSeen == null ? 0 : movieSeen.length));
+    }
+
+    public boolean hasVertex(String name) {
+        int v = graph.id(name);
+        return v >= 0 && distance[v] >= 0;
+    }
+
+    /**
+     * Names of the actors in the tree, in BFS order
+     */
+    public Iterable<String> vertices() {
+        return () -> new Iterator<String>() {
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < reached;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return graph.name(order[i++]);
+            }
+        };
+    }
+}
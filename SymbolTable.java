@@ -0,0 +1,171 @@
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interned strings for Bacon Game (actor names, movie titles) kept as UTF-8 in one byte arena and referenced by
+ * int id; an open-addressing table of ids finds a string's id without any String keys on the heap. Strings are
+ * only decoded when asked for, e.g. to print them.
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class SymbolTable {
+    byte[] bytes;               //every string's UTF-8 bytes, back to back
+    int[] ends;                 //Index: id, Value: end of that string in bytes; it starts at the previous end
+    private int size;           //number of strings
+    private int[] table;        //Index: hash slot, Value: id + 1, or 0 for an empty slot
+
+    public SymbolTable(int expected) {
+        bytes = new byte[Math.max(16, expected * 16)];
+        ends = new int[Math.max(4, expected)];
+        table = new int[tableSize(expected)];
+    }
+
+    /**
+     * Wraps strings that are already laid out as an arena and end offsets, as read back by GraphSnapshot
+     */
+    SymbolTable(byte[] bytes, int[] ends) {
+        this.bytes = bytes;
+        this.ends = ends;
+        size = ends.length;
+        table = new int[tableSize(size)];
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+
+    /**
+     * Smallest power of two at least twice the number of strings, so probes stay short
+     */
+    private static int tableSize(int count) {
+        return Integer.highestOneBit(Math.max(8, count * 2 - 1)) << 1;
+    }
+
+    /**
+     * Returns the id of s, adding it if it is new; null is stored as the empty string
+     */
+    public int intern(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        int id = find(b);
+        if (id >= 0) {
+            return id;
+        }
+
+        id = size++;
+        int start = start(id);
+        if (start + b.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(start + b.length, bytes.length * 3 / 2));
+        }
+        if (id == ends.length) {
+            ends = Arrays.copyOf(ends, ends.length * 3 / 2 + 1);
+        }
+        System.arraycopy(b, 0, bytes, start, b.length);
+        ends[id] = start + b.length;
+
+        if (size * 2 > table.length) { //keep the table at most half full
+            table = new int[table.length * 2];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+        else {
+            insert(id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of s, or -1 if it was never added
+     */
+    public int id(String s) {
+        return s == null ? -1 : find(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the string with the given id
+     */
+    public String get(int id) {
+        int start = start(id);
+        return new String(bytes, start, ends[id] - start, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * All strings as a read-only list, decoded one at a time as it is read
+     */
+    public List<String> asList() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int id) {
+                return SymbolTable.this.get(id);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Approximate heap used by the arena, offsets and hash table
+     */
+    public long memory() {
+        return bytes.length + 4L * ends.length + 4L * table.length;
+    }
+
+    /**
+     * Drops spare room at the end of the arrays, as GraphSnapshot expects
+     */
+    void trim() {
+        if (bytes.length == start(size) && ends.length == size) {
+            return;
+        }
+        bytes = Arrays.copyOf(bytes, start(size));
+        ends = Arrays.copyOf(ends, size);
+    }
+
+    private int start(int id) {
+        return id == 0 ? 0 : ends[id - 1];
+    }
+
+    private static int hash(byte[] b, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + b[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Puts an id that is already in the arena into the hash table
+     */
+    private void insert(int id) {
+        int mask = table.length - 1;
+        int slot = hash(bytes, start(id), ends[id]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    /**
+     * Linear probing for the id whose bytes equal b, or -1
+     */
+    private int find(byte[] b) {
+        int mask = table.length - 1;
+        for (int slot = hash(b, 0, b.length) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            int start = start(id);
+            if (ends[id] - start == b.length && Arrays.equals(bytes, start, ends[id], b, 0, b.length)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Seeded generator of synthetic input files for Bacon Game (actors.txt, movies.txt, movie-actors.txt),
+ * so benchmarks can be reproduced without the real dataset. Actor popularity follows a power law:
+ * the actor of rank r is cast with weight 1 / r^EXPONENT, and cast sizes are heavy-tailed too.
+ * Actor 1 is always Kevin Bacon, the most popular actor.
+ *
+ * Usage: java SyntheticCasts <actors> [seed] [directory]
+ * (the directory defaults to inputs/synthetic-<actors>-<seed>, where BaconBenchmark --synthetic looks for it)
+ *
+ * @author Jason Pak and Perry Zhang, Dartmouth CS 10, Fall 2020
+ */
+
+public class SyntheticCasts {
+    private static final double EXPONENT = 0.8;         //power-law exponent of actor popularity
+    private static final double MOVIES_PER_ACTOR = 0.4; //movies generated per actor
+    private static final int MAX_CAST = 200;            //largest ensemble cast
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java SyntheticCasts <actors> [seed] [directory]");
+            return;
+        }
+        int actors = Integer.parseInt(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        String directory = args.length > 2 ? args[2] : defaultDirectory(actors, seed);
+        try {
+            write(actors, seed, directory);
+            System.out.println("wrote " + directory);
+        }
+        catch (IOException e) {
+            System.err.println("Cannot write synthetic files.\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Where the files for the given number of actors and seed go unless a directory is named, here and in BaconBenchmark
+     */
+    public static String defaultDirectory(int actors, long seed) {
+        return "inputs/synthetic-" + actors + "-" + seed;
+    }
+
+    /**
+     * Writes actors.txt, movies.txt and movie-actors.txt for the given number of actors into directory
+     */
+    public static void write(int actors, long seed, String directory) throws IOException {
+        Random random = new Random(seed);
+        new File(directory).mkdirs();
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(new File(directory, "actors.txt")))) {
+            out.write("1|Kevin Bacon\n");
+            for (int a = 2; a <= actors; a++) {
+                out.write(a + "|Actor " + a + "\n");
+            }
+        }
+
+        int movies = Math.max(1, (int) (actors * MOVIES_PER_ACTOR));
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(new File(directory, "movies.txt")))) {
+            for (int m = 1; m <= movies; m++) {
+                out.write(m + "|Movie " + m + "\n");
+            }
+        }
+
+        //cumulative popularity, so an actor can be drawn with a binary search
+        double[] cumulative = new double[actors];
+        double total = 0;
+        for (int r = 0; r < actors; r++) {
+            total += 1 / Math.pow(r + 1, EXPONENT);
+            cumulative[r] = total;
+        }
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(new File(directory, "movie-actors.txt")))) {
+            Set<Integer> cast = new HashSet<>();
+            for (int m = 1; m <= movies; m++) {
+                //Pareto-distributed cast size, at least 2 (about 9 on average), capped at MAX_CAST
+                int size = (int) (3 / Math.pow(1 - random.nextDouble(), 0.7)) - 1;
+                size = Math.min(size, Math.min(MAX_CAST, actors));
+                cast.clear();
+                while (cast.size() < size) {
+                    int r = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                    cast.add(Math.min(r < 0 ? -r - 1 : r, actors - 1) + 1);
+                }
+                for (int a : cast) {
+                    out.write(m + "|" + a + "\n");
+                }
+            }
+        }
+    }
+}